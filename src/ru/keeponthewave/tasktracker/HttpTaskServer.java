@@ -7,6 +7,10 @@ import com.sun.net.httpserver.HttpServer;
 import ru.keeponthewave.tasktracker.controllers.*;
 import ru.keeponthewave.tasktracker.exceptions.HttpServerInitializationError;
 import ru.keeponthewave.tasktracker.http.ApiController;
+import ru.keeponthewave.tasktracker.http.ExecutorMode;
+import ru.keeponthewave.tasktracker.http.ResourceVersions;
+import ru.keeponthewave.tasktracker.http.ResponseCache;
+import ru.keeponthewave.tasktracker.http.ResponseMode;
 import ru.keeponthewave.tasktracker.exceptions.IocException;
 import ru.keeponthewave.tasktracker.http.ioc.InversionOfControlContainer;
 import ru.keeponthewave.tasktracker.lib.gson.adapters.DurationTypeAdapter;
@@ -21,6 +25,7 @@ import java.time.Duration;
 import java.time.Instant;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.concurrent.ExecutorService;
 import java.util.function.Consumer;
 import java.util.function.Function;
 
@@ -31,6 +36,10 @@ public class HttpTaskServer {
     private static final int PORT = 5050;
     private static final String HOST = "localhost";
     private final HttpServer server;
+    private ExecutorService executor;
+    private ResponseMode responseMode = ResponseMode.BUFFERED;
+    private boolean responseCacheEnabled;
+    private ResponseCache responseCache;
 
     public HttpTaskServer(HttpServer server) {
         this.server = server;
@@ -47,6 +56,7 @@ public class HttpTaskServer {
                     add(EpicsController.class);
                     add(HistoryController.class);
                     add(PriorityController.class);
+                    add(BatchController.class);
                 }}
         );
 
@@ -55,9 +65,12 @@ public class HttpTaskServer {
                         .registerTypeAdapter(Duration.class, new DurationTypeAdapter())
         );
 
+        taskServer.configureExecutor(ExecutorMode.VIRTUAL_THREADS);
+        taskServer.configureResponseMode(ResponseMode.STREAMING);
+        taskServer.configureResponseCache(true);
         taskServer.configureServices(ioc -> {
-            ioc.register(TaskManager.class, InMemoryTaskManager.class);
-            ioc.register(HistoryManager.class, InMemoryHistoryManager.class);
+            ioc.register(TaskManager.class, ConcurrentTaskManager.class);
+            ioc.register(HistoryManager.class, PartitionedHistoryManager.class);
         });
         // taskServer.configureValue("backedTaskManagerPath", Path.of(""));
 
@@ -69,6 +82,22 @@ public class HttpTaskServer {
         gson = configureFn.apply(new GsonBuilder()).create();
     }
 
+    public void configureExecutor(ExecutorMode mode) {
+        if (executor != null) {
+            executor.shutdown();
+        }
+        executor = mode.createExecutor();
+        server.setExecutor(executor);
+    }
+
+    public void configureResponseMode(ResponseMode mode) {
+        responseMode = mode;
+    }
+
+    public void configureResponseCache(boolean enabled) {
+        responseCacheEnabled = enabled;
+    }
+
     public void configureServices(Consumer<InversionOfControlContainer> configureFn) {
         configureFn.accept(ioc);
         initControllers();
@@ -79,6 +108,19 @@ public class HttpTaskServer {
             Field gsonField = ApiController.class.getDeclaredField("gson");
             gsonField.setAccessible(true);
             gsonField.set(null, gson);
+            Field responseModeField = ApiController.class.getDeclaredField("responseMode");
+            responseModeField.setAccessible(true);
+            responseModeField.set(null, responseMode);
+            responseCache = responseCacheEnabled ? (ResponseCache) ioc.resolve(ResponseCache.class) : null;
+            if (responseCache != null) {
+                responseCache.subscribe();
+            }
+            Field responseCacheField = ApiController.class.getDeclaredField("responseCache");
+            responseCacheField.setAccessible(true);
+            responseCacheField.set(null, responseCache);
+            Field resourceVersionsField = ApiController.class.getDeclaredField("resourceVersions");
+            resourceVersionsField.setAccessible(true);
+            resourceVersionsField.set(null, ioc.resolve(ResourceVersions.class));
 
             for (var controllerClass : controllers) {
                 if (!controllerClass.isAnnotationPresent(Controller.class)) {
@@ -106,6 +148,12 @@ public class HttpTaskServer {
 
     public void stop() {
         server.stop(0);
+        if (responseCache != null) {
+            responseCache.close();
+        }
+        if (executor != null) {
+            executor.shutdown();
+        }
     }
 
     public Gson getGson() {
@@ -0,0 +1,66 @@
+package ru.keeponthewave.tasktracker;
+
+import ru.keeponthewave.tasktracker.managers.FileBackedTaskManager;
+import ru.keeponthewave.tasktracker.managers.FileStorageOptions;
+import ru.keeponthewave.tasktracker.managers.PersistenceMode;
+import ru.keeponthewave.tasktracker.managers.TaskImportFormat;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Locale;
+
+/**
+ * Импорт задач в файловое хранилище:
+ * <pre>
+ * TaskImportCli &lt;файл хранилища&gt; &lt;файл импорта&gt; [--format=csv|jsonl] [--mode=snapshot|journal]
+ * </pre>
+ * Формат по умолчанию определяется по расширению: .jsonl и .ndjson - JSON lines, остальное - CSV.
+ */
+public class TaskImportCli {
+    private static final String USAGE = "Использование: TaskImportCli <файл хранилища> <файл импорта> "
+            + "[--format=csv|jsonl] [--mode=snapshot|journal]";
+
+    public static void main(String[] args) {
+        if (args.length < 2) {
+            System.out.println(USAGE);
+            System.exit(2);
+        }
+        Path storage = Path.of(args[0]);
+        Path input = Path.of(args[1]);
+        TaskImportFormat format = detectFormat(input);
+        PersistenceMode mode = PersistenceMode.SNAPSHOT;
+        for (int i = 2; i < args.length; i++) {
+            String value = args[i].substring(args[i].indexOf('=') + 1).toUpperCase(Locale.ROOT);
+            try {
+                if (args[i].startsWith("--format=")) {
+                    format = value.equals("JSONL") ? TaskImportFormat.JSON_LINES : TaskImportFormat.valueOf(value);
+                } else if (args[i].startsWith("--mode=")) {
+                    mode = PersistenceMode.valueOf(value);
+                } else {
+                    throw new IllegalArgumentException();
+                }
+            } catch (IllegalArgumentException e) {
+                System.out.println("Неизвестный параметр: " + args[i]);
+                System.out.println(USAGE);
+                System.exit(2);
+            }
+        }
+
+        try (var manager = FileBackedTaskManager.loadFromFile(storage.toFile(), FileStorageOptions.of(mode));
+             BufferedReader reader = Files.newBufferedReader(input)) {
+            long start = System.nanoTime();
+            int count = manager.importTasks(format.read(reader)).size();
+            System.out.printf("Импортировано задач: %d за %d мс%n", count, (System.nanoTime() - start) / 1_000_000);
+        } catch (IOException | RuntimeException e) {
+            System.out.println("Ошибка импорта: " + e.getMessage());
+            System.exit(1);
+        }
+    }
+
+    private static TaskImportFormat detectFormat(Path input) {
+        String name = input.getFileName().toString().toLowerCase(Locale.ROOT);
+        return name.endsWith(".jsonl") || name.endsWith(".ndjson") ? TaskImportFormat.JSON_LINES : TaskImportFormat.CSV;
+    }
+}
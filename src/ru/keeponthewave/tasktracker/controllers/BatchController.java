@@ -0,0 +1,82 @@
+package ru.keeponthewave.tasktracker.controllers;
+
+import ru.keeponthewave.tasktracker.dto.BatchDto;
+import ru.keeponthewave.tasktracker.dto.BatchItemDto;
+import ru.keeponthewave.tasktracker.dto.BatchItemResultDto;
+import ru.keeponthewave.tasktracker.dto.UnknownTaskDto;
+import ru.keeponthewave.tasktracker.exceptions.BatchRejectedException;
+import ru.keeponthewave.tasktracker.exceptions.TimeIntersectionException;
+import ru.keeponthewave.tasktracker.http.ApiController;
+import ru.keeponthewave.tasktracker.http.HttpMethod;
+import ru.keeponthewave.tasktracker.http.HttpResult;
+import ru.keeponthewave.tasktracker.http.ioc.*;
+import ru.keeponthewave.tasktracker.managers.BatchOperation;
+import ru.keeponthewave.tasktracker.managers.TaskManager;
+import ru.keeponthewave.tasktracker.model.EpicTask;
+import ru.keeponthewave.tasktracker.model.SubTask;
+import ru.keeponthewave.tasktracker.model.Task;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.NoSuchElementException;
+
+@Controller(path = "/batch")
+public class BatchController extends ApiController {
+    public static final int MAX_OPERATIONS = 1000;
+
+    private final TaskManager manager;
+
+    @InjectableConstructor
+    public BatchController(TaskManager manager) {
+        this.manager = manager;
+    }
+
+    @Endpoint(method = HttpMethod.POST)
+    public HttpResult<?> applyBatch(@FromBody BatchDto dto) {
+        if (dto == null || dto.operations() == null) {
+            return badRequest("Ошибка: в теле запроса отсутствует список operations");
+        }
+        if (dto.operations().size() > MAX_OPERATIONS) {
+            return badRequest(String.format("Ошибка: в пакете не может быть больше %d операций", MAX_OPERATIONS));
+        }
+
+        List<BatchOperation> operations = new ArrayList<>(dto.operations().size());
+        for (int i = 0; i < dto.operations().size(); i++) {
+            var item = dto.operations().get(i);
+            if (item == null || item.action() == null || item.type() == null) {
+                return badRequest(String.format("Ошибка в операции пакета #%d: не указаны action или type", i));
+            }
+            operations.add(toOperation(item));
+        }
+
+        try {
+            var results = manager.applyBatch(operations);
+            List<BatchItemResultDto> response = new ArrayList<>(results.size());
+            for (int i = 0; i < results.size(); i++) {
+                response.add(new BatchItemResultDto(i, operations.get(i).action(), UnknownTaskDto.of(results.get(i))));
+            }
+            return ok(response);
+        } catch (BatchRejectedException e) {
+            if (e.getCause() instanceof TimeIntersectionException) {
+                return notAcceptable(e.getMessage());
+            }
+            if (e.getCause() instanceof NoSuchElementException) {
+                return notFound(e.getMessage());
+            }
+            return badRequest(e.getMessage());
+        }
+    }
+
+    private static BatchOperation toOperation(BatchItemDto item) {
+        if (item.action() == BatchOperation.Action.DELETE) {
+            return new BatchOperation(item.action(), item.type(), item.id(), null, null);
+        }
+        Task task = switch (item.type()) {
+            case TASK -> new Task(item.name(), item.description(), item.id(), item.status(), item.startTime(), item.duration());
+            case EPIC -> new EpicTask(item.name(), item.description(), item.id());
+            case SUBTASK -> new SubTask(item.name(), item.description(), item.id(), item.status(), item.epicId(),
+                    item.startTime(), item.duration());
+        };
+        return new BatchOperation(item.action(), item.type(), item.id(), task, item.epicRef());
+    }
+}
@@ -2,6 +2,7 @@ package ru.keeponthewave.tasktracker.controllers;
 
 import ru.keeponthewave.tasktracker.dto.EpicDto;
 import ru.keeponthewave.tasktracker.dto.EpicResponseDto;
+import ru.keeponthewave.tasktracker.dto.PageDto;
 import ru.keeponthewave.tasktracker.dto.SubTaskDto;
 import ru.keeponthewave.tasktracker.http.ApiController;
 import ru.keeponthewave.tasktracker.http.HttpMethod;
@@ -9,7 +10,9 @@ import ru.keeponthewave.tasktracker.http.HttpResult;
 import ru.keeponthewave.tasktracker.http.ioc.*;
 import ru.keeponthewave.tasktracker.managers.TaskManager;
 import ru.keeponthewave.tasktracker.model.EpicTask;
+import ru.keeponthewave.tasktracker.model.TaskType;
 
+import java.util.ArrayList;
 import java.util.NoSuchElementException;
 
 @Controller(path = "/epics")
@@ -22,22 +25,24 @@ public class EpicsController extends ApiController {
     }
 
     @Endpoint(method = HttpMethod.GET)
-    public HttpResult<?> getAllEpics() {
-        return ok(manager.getAllEpicTasks()
-                .stream()
-                .map(task -> new EpicResponseDto(task.getId(), task.getName(), task.getDescription(), task.getStatus(),
-                        task.getSubtaskIds(), task.getStartTime(), task.getDuration()
-
-                )).toList());
+    @CachedResponse(invalidatedBy = TaskType.EPIC)
+    public HttpResult<?> getAllEpics(@FromQuery(name = "limit") Integer limit,
+                                     @FromQuery(name = "cursor") Integer cursor) {
+        if (limit == null && cursor == null) {
+            return ok(manager.getAllEpicTasks().stream().map(EpicsController::toDto));
+        }
+        if (!PageDto.isValidLimit(limit)) {
+            return badRequest(PageDto.LIMIT_ERROR);
+        }
+        var page = manager.getEpicTasksPage(cursor, limit == null ? PageDto.DEFAULT_LIMIT : limit);
+        return ok(PageDto.of(page, EpicsController::toDto));
     }
 
     @Endpoint(method = HttpMethod.GET, pattern = "/{id}")
     public HttpResult<?> getEpicById(@FromPath(name = "id") int id) {
         try {
             var task = manager.getEpicTaskById(id);
-            return ok(new EpicResponseDto(task.getId(), task.getName(), task.getDescription(), task.getStatus(),
-                    task.getSubtaskIds(), task.getStartTime(), task.getDuration()
-            ));
+            return ok(toDto(task));
         } catch (NoSuchElementException e) {
             return notFound(String.format("Подзадачи c id=%d не существует", id));
         }
@@ -49,18 +54,10 @@ public class EpicsController extends ApiController {
             var task = new EpicTask(dto.name(), dto.description(), dto.id());
             if (task.getId() == null) {
                 EpicTask created = manager.createEpicTask(task);
-                return created(
-                        new EpicResponseDto(created.getId(), created.getName(), created.getDescription(),
-                                created.getStatus(), created.getSubtaskIds(),
-                                created.getStartTime(), created.getDuration())
-                );
+                return created(toDto(created));
             } else {
                 EpicTask updated = manager.updateEpicTask(task);
-                return ok(
-                        new EpicResponseDto(updated.getId(), updated.getName(), updated.getDescription(),
-                                updated.getStatus(), updated.getSubtaskIds(),
-                                updated.getStartTime(), updated.getDuration())
-                );
+                return ok(toDto(updated));
             }
         } catch (NoSuchElementException e) {
             return notFound(e.getMessage());
@@ -71,11 +68,7 @@ public class EpicsController extends ApiController {
     public HttpResult<?> deleteEpicTask(@FromPath(name = "id") int id) {
         try {
             EpicTask task = manager.deleteEpicTaskById(id);
-            return ok(
-                    new EpicResponseDto(task.getId(), task.getName(), task.getDescription(),
-                            task.getStatus(), task.getSubtaskIds(),
-                            task.getStartTime(), task.getDuration())
-            );
+            return ok(toDto(task));
         } catch (NoSuchElementException e) {
             return notFound(e.getMessage());
         }
@@ -97,4 +90,9 @@ public class EpicsController extends ApiController {
             return notFound(e.getMessage());
         }
     }
+
+    private static EpicResponseDto toDto(EpicTask task) {
+        return new EpicResponseDto(task.getId(), task.getName(), task.getDescription(), task.getStatus(),
+                new ArrayList<>(task.getSubtaskIds()), task.getStartTime(), task.getDuration());
+    }
 }
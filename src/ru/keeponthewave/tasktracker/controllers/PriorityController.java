@@ -1,16 +1,20 @@
 package ru.keeponthewave.tasktracker.controllers;
 
+import ru.keeponthewave.tasktracker.dto.PageDto;
 import ru.keeponthewave.tasktracker.dto.UnknownTaskDto;
 import ru.keeponthewave.tasktracker.http.ApiController;
 import ru.keeponthewave.tasktracker.http.HttpMethod;
 import ru.keeponthewave.tasktracker.http.HttpResult;
+import ru.keeponthewave.tasktracker.http.ioc.CachedResponse;
 import ru.keeponthewave.tasktracker.http.ioc.Controller;
 import ru.keeponthewave.tasktracker.http.ioc.Endpoint;
+import ru.keeponthewave.tasktracker.http.ioc.FromQuery;
 import ru.keeponthewave.tasktracker.http.ioc.InjectableConstructor;
 import ru.keeponthewave.tasktracker.managers.TaskManager;
-import ru.keeponthewave.tasktracker.model.SubTask;
 import ru.keeponthewave.tasktracker.model.TaskType;
 
+import java.time.Instant;
+
 @Controller(path = "/prioritized")
 public class PriorityController extends ApiController {
     private final TaskManager manager;
@@ -21,15 +25,24 @@ public class PriorityController extends ApiController {
     }
 
     @Endpoint(method = HttpMethod.GET)
-    public HttpResult<?> getPrioritized() {
-        return ok(manager.getPrioritizedTasks().stream().map(t -> {
-            if (t.getType() == TaskType.SUBTASK) {
-                var subtask = (SubTask) t;
-                return new UnknownTaskDto(subtask.getId(), subtask.getName(), subtask.getDescription(), subtask.getStatus(),
-                        null, t.getStartTime(), t.getDuration(), subtask.getEpicTaskId(), t.getType());
-            }
-            return new UnknownTaskDto(t.getId(), t.getName(), t.getDescription(), t.getStatus(),
-                    null, t.getStartTime(), t.getDuration(), null, t.getType());
-        }).toList());
+    @CachedResponse(invalidatedBy = {TaskType.TASK, TaskType.SUBTASK})
+    public HttpResult<?> getPrioritized(@FromQuery(name = "from") Instant from,
+                                        @FromQuery(name = "to") Instant to,
+                                        @FromQuery(name = "limit") Integer limit) {
+        if (from == null && to == null && limit == null) {
+            return ok(manager.getPrioritizedTasks().stream().map(UnknownTaskDto::of).toList());
+        }
+        if (!PageDto.isValidLimit(limit)) {
+            return badRequest(PageDto.LIMIT_ERROR);
+        }
+        if (from != null && to != null && !from.isBefore(to)) {
+            return badRequest("Ошибка: параметр from должен быть раньше to");
+        }
+        // Диапазон с обеими границами без limit отдаётся целиком: молча обрезанный ответ не отличить от полного.
+        if (limit == null) {
+            limit = from != null && to != null ? Integer.MAX_VALUE : PageDto.DEFAULT_LIMIT;
+        }
+        var tasks = manager.getPrioritizedTasks(from, to, limit);
+        return ok(tasks.stream().map(UnknownTaskDto::of).toList());
     }
 }
@@ -1,5 +1,6 @@
 package ru.keeponthewave.tasktracker.controllers;
 
+import ru.keeponthewave.tasktracker.dto.PageDto;
 import ru.keeponthewave.tasktracker.dto.SubTaskDto;
 import ru.keeponthewave.tasktracker.exceptions.TimeIntersectionException;
 import ru.keeponthewave.tasktracker.http.ApiController;
@@ -8,6 +9,7 @@ import ru.keeponthewave.tasktracker.http.HttpResult;
 import ru.keeponthewave.tasktracker.http.ioc.*;
 import ru.keeponthewave.tasktracker.managers.TaskManager;
 import ru.keeponthewave.tasktracker.model.SubTask;
+import ru.keeponthewave.tasktracker.model.TaskType;
 
 import java.util.NoSuchElementException;
 
@@ -21,13 +23,17 @@ public class SubtasksController extends ApiController {
     }
 
     @Endpoint(method = HttpMethod.GET)
-    public HttpResult<?> getAllTasks() {
-        return ok(manager.getAllSubTasks()
-                .stream()
-                .map(task -> new SubTaskDto(task.getId(), task.getName(), task.getDescription(), task.getStatus(),
-                        task.getEpicTaskId(), task.getStartTime(), task.getDuration()
-
-                )).toList());
+    @CachedResponse(invalidatedBy = TaskType.SUBTASK)
+    public HttpResult<?> getAllTasks(@FromQuery(name = "limit") Integer limit,
+                                     @FromQuery(name = "cursor") Integer cursor) {
+        if (limit == null && cursor == null) {
+            return ok(manager.getAllSubTasks().stream().map(SubtasksController::toDto));
+        }
+        if (!PageDto.isValidLimit(limit)) {
+            return badRequest(PageDto.LIMIT_ERROR);
+        }
+        var page = manager.getSubTasksPage(cursor, limit == null ? PageDto.DEFAULT_LIMIT : limit);
+        return ok(PageDto.of(page, SubtasksController::toDto));
     }
 
     @Endpoint(method = HttpMethod.GET, pattern = "/{id}")
@@ -79,4 +85,9 @@ public class SubtasksController extends ApiController {
             return notFound(e.getMessage());
         }
     }
+
+    private static SubTaskDto toDto(SubTask task) {
+        return new SubTaskDto(task.getId(), task.getName(), task.getDescription(), task.getStatus(),
+                task.getEpicTaskId(), task.getStartTime(), task.getDuration());
+    }
 }
@@ -1,11 +1,13 @@
 package ru.keeponthewave.tasktracker.controllers;
 
+import ru.keeponthewave.tasktracker.dto.PageDto;
 import ru.keeponthewave.tasktracker.dto.TaskDto;
 import ru.keeponthewave.tasktracker.exceptions.TimeIntersectionException;
 import ru.keeponthewave.tasktracker.http.*;
 import ru.keeponthewave.tasktracker.http.ioc.*;
 import ru.keeponthewave.tasktracker.managers.TaskManager;
 import ru.keeponthewave.tasktracker.model.Task;
+import ru.keeponthewave.tasktracker.model.TaskType;
 
 import java.util.NoSuchElementException;
 
@@ -19,13 +21,17 @@ public class TasksController extends ApiController {
     }
 
     @Endpoint(method = HttpMethod.GET)
-    public HttpResult<?> getAllTasks() {
-        return ok(manager.getAllTasks()
-                .stream()
-                .map(task -> new TaskDto(task.getId(), task.getName(), task.getDescription(), task.getStatus(),
-                        task.getStartTime(), task.getDuration()
-
-                )).toList());
+    @CachedResponse(invalidatedBy = TaskType.TASK)
+    public HttpResult<?> getAllTasks(@FromQuery(name = "limit") Integer limit,
+                                     @FromQuery(name = "cursor") Integer cursor) {
+        if (limit == null && cursor == null) {
+            return ok(manager.getAllTasks().stream().map(TasksController::toDto));
+        }
+        if (!PageDto.isValidLimit(limit)) {
+            return badRequest(PageDto.LIMIT_ERROR);
+        }
+        var page = manager.getTasksPage(cursor, limit == null ? PageDto.DEFAULT_LIMIT : limit);
+        return ok(PageDto.of(page, TasksController::toDto));
     }
 
     @Endpoint(method = HttpMethod.GET, pattern = "/{id}")
@@ -76,4 +82,9 @@ public class TasksController extends ApiController {
             return notFound(e.getMessage());
         }
     }
+
+    private static TaskDto toDto(Task task) {
+        return new TaskDto(task.getId(), task.getName(), task.getDescription(), task.getStatus(),
+                task.getStartTime(), task.getDuration());
+    }
 }
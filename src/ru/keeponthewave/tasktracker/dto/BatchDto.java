@@ -0,0 +1,7 @@
+package ru.keeponthewave.tasktracker.dto;
+
+import java.util.List;
+
+public record BatchDto(List<BatchItemDto> operations) {
+
+}
@@ -0,0 +1,12 @@
+package ru.keeponthewave.tasktracker.dto;
+
+import ru.keeponthewave.tasktracker.managers.BatchOperation;
+import ru.keeponthewave.tasktracker.model.TaskStatus;
+import ru.keeponthewave.tasktracker.model.TaskType;
+
+import java.time.Duration;
+import java.time.Instant;
+
+public record BatchItemDto(BatchOperation.Action action, TaskType type, Integer id, String name, String description, TaskStatus status, Integer epicId, Integer epicRef, Instant startTime, Duration duration) {
+
+}
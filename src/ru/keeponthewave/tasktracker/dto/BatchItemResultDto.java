@@ -0,0 +1,7 @@
+package ru.keeponthewave.tasktracker.dto;
+
+import ru.keeponthewave.tasktracker.managers.BatchOperation;
+
+public record BatchItemResultDto(int index, BatchOperation.Action action, UnknownTaskDto task) {
+
+}
@@ -0,0 +1,22 @@
+package ru.keeponthewave.tasktracker.dto;
+
+import ru.keeponthewave.tasktracker.managers.Page;
+import ru.keeponthewave.tasktracker.model.Task;
+
+import java.util.List;
+import java.util.function.Function;
+
+public record PageDto<T>(List<T> items, Integer nextCursor) {
+    public static final int DEFAULT_LIMIT = 100;
+    public static final int MAX_LIMIT = 1000;
+    public static final String LIMIT_ERROR =
+            String.format("Ошибка: параметр limit должен быть от 1 до %d", MAX_LIMIT);
+
+    public static boolean isValidLimit(Integer limit) {
+        return limit == null || limit >= 1 && limit <= MAX_LIMIT;
+    }
+
+    public static <S extends Task, T> PageDto<T> of(Page<S> page, Function<? super S, T> mapper) {
+        return new PageDto<>(page.items().stream().map(mapper).toList(), page.nextCursor());
+    }
+}
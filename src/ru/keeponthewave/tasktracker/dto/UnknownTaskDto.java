@@ -1,12 +1,30 @@
 package ru.keeponthewave.tasktracker.dto;
 
+import ru.keeponthewave.tasktracker.model.EpicTask;
+import ru.keeponthewave.tasktracker.model.SubTask;
+import ru.keeponthewave.tasktracker.model.Task;
 import ru.keeponthewave.tasktracker.model.TaskStatus;
 import ru.keeponthewave.tasktracker.model.TaskType;
 
 import java.time.Duration;
 import java.time.Instant;
+import java.util.ArrayList;
 import java.util.List;
 
 public record UnknownTaskDto(Integer id, String name, String description, TaskStatus status, List<Integer> SubTaskIds, Instant startTime, Duration duration, Integer epicId, TaskType type) {
-
+    public static UnknownTaskDto of(Task t) {
+        if (t.getType() == TaskType.SUBTASK) {
+            var subtask = (SubTask) t;
+            return new UnknownTaskDto(subtask.getId(), subtask.getName(), subtask.getDescription(), subtask.getStatus(),
+                    null, t.getStartTime(), t.getDuration(), subtask.getEpicTaskId(), t.getType());
+        }
+        if (t.getType() == TaskType.EPIC) {
+            var epic = (EpicTask) t;
+            return new UnknownTaskDto(epic.getId(), epic.getName(), epic.getDescription(), epic.getStatus(),
+                    new ArrayList<>(epic.getSubtaskIds()), epic.getStartTime(), epic.getDuration(), null,
+                    epic.getType());
+        }
+        return new UnknownTaskDto(t.getId(), t.getName(), t.getDescription(), t.getStatus(),
+                null, t.getStartTime(), t.getDuration(), null, t.getType());
+    }
 }
\ No newline at end of file
@@ -0,0 +1,14 @@
+package ru.keeponthewave.tasktracker.exceptions;
+
+public class BatchRejectedException extends RuntimeException {
+    private final int index;
+
+    public BatchRejectedException(int index, String message, Throwable cause) {
+        super(String.format("Ошибка в операции пакета #%d: %s", index, message), cause);
+        this.index = index;
+    }
+
+    public int getIndex() {
+        return index;
+    }
+}
@@ -0,0 +1,7 @@
+package ru.keeponthewave.tasktracker.exceptions;
+
+public class RequestBindingException extends RuntimeException {
+    public RequestBindingException(String message) {
+        super(message);
+    }
+}
@@ -2,26 +2,56 @@ package ru.keeponthewave.tasktracker.http;
 
 import com.google.gson.Gson;
 import com.google.gson.JsonSyntaxException;
+import com.google.gson.stream.JsonWriter;
 import com.sun.net.httpserver.HttpExchange;
 import com.sun.net.httpserver.HttpHandler;
+import ru.keeponthewave.tasktracker.exceptions.HttpServerInitializationError;
+import ru.keeponthewave.tasktracker.exceptions.RequestBindingException;
+import ru.keeponthewave.tasktracker.http.ioc.CachedResponse;
 import ru.keeponthewave.tasktracker.http.ioc.Controller;
 import ru.keeponthewave.tasktracker.http.ioc.Endpoint;
 import ru.keeponthewave.tasktracker.http.ioc.FromBody;
 import ru.keeponthewave.tasktracker.http.ioc.FromPath;
+import ru.keeponthewave.tasktracker.http.ioc.FromQuery;
+import ru.keeponthewave.tasktracker.managers.ClientContext;
+import ru.keeponthewave.tasktracker.model.TaskType;
 
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.FilterOutputStream;
 import java.io.IOException;
-import java.lang.reflect.InvocationTargetException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
 import java.lang.reflect.Method;
 import java.lang.reflect.Parameter;
+import java.net.URLDecoder;
 import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+import java.time.format.DateTimeParseException;
+import java.util.ArrayList;
+import java.util.Comparator;
 import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
 import java.util.Map;
 import java.util.regex.Matcher;
-import java.util.regex.Pattern;
+import java.util.stream.Stream;
 
 public abstract class ApiController implements HttpHandler {
-    private final Map<String, Map<HttpMethod, Method>> routes = new HashMap<>();
+    public static final String CLIENT_ID_HEADER = "X-Client-Id";
+    private static final int MAX_CLIENT_ID_LENGTH = 128;
+    public static final String CACHE_STATUS_HEADER = "X-Cache";
+    private static final int STREAM_BUFFER_SIZE = 16 * 1024;
+
+    private final Map<String, Route> staticRoutes = new HashMap<>();
+    private final List<Route> dynamicRoutes = new ArrayList<>();
     private static Gson gson;
+    private static ResponseMode responseMode = ResponseMode.BUFFERED;
+    private static ResponseCache responseCache;
+    private static ResourceVersions resourceVersions;
 
     protected ApiController() {
         Class<?> clazz = getClass();
@@ -30,6 +60,7 @@ public abstract class ApiController implements HttpHandler {
         }
         String basePath = clazz.getAnnotation(Controller.class).path();
 
+        Map<String, Route> routes = new LinkedHashMap<>();
         for (Method method : clazz.getMethods()) {
             if (method.isAnnotationPresent(Endpoint.class)) {
                 Endpoint endpoint = method.getAnnotation(Endpoint.class);
@@ -37,79 +68,244 @@ public abstract class ApiController implements HttpHandler {
                 String pattern = basePath
                         + endpoint.pattern();
 
-                HttpMethod httpMethod = endpoint.method();
+                Route route = routes.computeIfAbsent(pattern, Route::new);
+                TaskType[] cachedBy = endpoint.method() == HttpMethod.GET && method.isAnnotationPresent(CachedResponse.class)
+                        ? method.getAnnotation(CachedResponse.class).invalidatedBy()
+                        : null;
+                route.addHandler(endpoint.method(),
+                        new Route.Handler(createInvoker(method), createBinders(route, method), cachedBy));
+            }
+        }
 
-                Map<HttpMethod, Method> map = routes.getOrDefault(pattern, new HashMap<>());
-                map.put(httpMethod, method);
-                routes.put(pattern, map);
+        for (Route route : routes.values()) {
+            if (route.isStatic()) {
+                staticRoutes.put(route.getTemplate(), route);
+            } else {
+                dynamicRoutes.add(route);
             }
         }
+        dynamicRoutes.sort(Comparator.comparingInt((Route route) -> route.getTemplate().length()).reversed());
     }
 
     @Override
     public void handle(HttpExchange exchange) throws IOException {
+        String clientId = exchange.getRequestHeaders().getFirst(CLIENT_ID_HEADER);
+        if (clientId != null && clientId.length() > MAX_CLIENT_ID_LENGTH) {
+            sendJson(exchange, badRequest("Ошибка: слишком длинный заголовок " + CLIENT_ID_HEADER));
+            return;
+        }
+        ClientContext.set(clientId);
+        try {
+            route(exchange);
+        } finally {
+            ClientContext.clear();
+        }
+    }
+
+    private void route(HttpExchange exchange) throws IOException {
         String path = exchange.getRequestURI().getPath();
         HttpMethod method = HttpMethod.valueOf(exchange.getRequestMethod());
 
-        for (String pattern : routes.keySet()) {
-            Pattern compiled = Pattern.compile("^"
-                    + pattern.replace("{", "(?<")
-                        .replace("}", ">.*)") + "$");
-            Matcher matcher = compiled.matcher(path);
-            if (matcher.find()) {
-                var m = routes.get(pattern).get(method);
-                Parameter[] inferParams = m.getParameters();
-                Object[] params = new Object[inferParams.length];
-                for (int i = 0; i < inferParams.length; i++) {
-                    var current = inferParams[i];
-
-                    if (current.isAnnotationPresent(FromBody.class)) {
-                       String bodyStr = new String(exchange.getRequestBody().readAllBytes());
-                       try {
-                           var bodyInstance = gson.fromJson(bodyStr, current.getType());
-                           params[i] = bodyInstance;
-                           continue;
-                       } catch (JsonSyntaxException e) {
-                           System.out.println("Ошибка десериализации: " + e.getMessage());
-                           return;
-                       }
-                    }
+        Route staticRoute = staticRoutes.get(path);
+        if (staticRoute != null && staticRoute.getHandler(method) != null) {
+            dispatch(exchange, staticRoute.getHandler(method), null);
+            return;
+        }
 
-                    if (current.isAnnotationPresent(FromPath.class)) {
-                        String pathParamName = current.getAnnotation(FromPath.class).name();
-                        String param = matcher.group(pathParamName);
-                        if (current.getType() == int.class || current.getType() == Integer.class) {
-                            try {
-                                params[i] = Integer.parseInt(param);
-                                continue;
-                            } catch (NumberFormatException e) {
-                                sendJson(exchange, badRequest(
-                                        String.format("Ошибка: Неверный формат параметра пути. Путь %s, где %s - целое число", pattern, pathParamName)
-                                ));
-                                return;
-                            }
-                        }
-                        if (current.getType() == String.class) {
-                            params[i] = param;
-                            continue;
-                        }
-                        System.out.println("Недопустимый тип параметра в методе: " + m + current);
-                    }
-                }
+        for (Route route : dynamicRoutes) {
+            Route.Handler handler = route.getHandler(method);
+            if (handler == null) {
+                continue;
+            }
+            Matcher matcher = route.match(path);
+            if (matcher != null) {
+                dispatch(exchange, handler, matcher);
+                return;
+            }
+        }
+        HttpResult<HttpErrorDto> notImplementedResult = notImplemented(HttpStatus.NOT_IMPLEMENTED.getTitle());
+        sendJson(exchange, notImplementedResult);
+    }
+
+    private void dispatch(HttpExchange exchange, Route.Handler handler, Matcher matcher) throws IOException {
+        String etag = null;
+        if (handler.cachedBy() != null && resourceVersions != null) {
+            etag = resourceVersions.etag(handler.cachedBy());
+            if (ResourceVersions.matches(exchange.getRequestHeaders().getFirst("If-None-Match"), etag)) {
+                addValidators(exchange, handler, etag);
+                sendNotModified(exchange);
+                return;
+            }
+        }
+
+        var cache = handler.cachedBy() == null ? null : responseCache;
+        String cacheKey = null;
+        long[] seenGenerations = null;
+        if (cache != null) {
+            String query = exchange.getRequestURI().getRawQuery();
+            cacheKey = query == null ? exchange.getRequestURI().getRawPath()
+                    : exchange.getRequestURI().getRawPath() + "?" + query;
+            byte[] cached = cache.get(cacheKey);
+            if (cached != null) {
+                addValidators(exchange, handler, etag);
+                sendBytes(exchange, HttpStatus.OK, cached, "HIT");
+                return;
+            }
+            seenGenerations = cache.generations(handler.cachedBy());
+        }
+
+        ParameterBinder[] binders = handler.binders();
+        Object[] params = new Object[binders.length];
+        try {
+            for (int i = 0; i < binders.length; i++) {
+                params[i] = binders[i].bind(exchange, matcher);
+            }
+        } catch (RequestBindingException e) {
+            sendJson(exchange, badRequest(e.getMessage()));
+            return;
+        }
 
+        HttpResult<?> result;
+        try {
+            result = (HttpResult<?>) handler.invoker().invokeExact(this, params);
+        } catch (Throwable e) {
+            System.out.println("Ошибка обработки запроса" + e.getMessage());
+            sendJson(exchange, internalServerError("Произошла непредвиденная ошибка"));
+            return;
+        }
+        if (result.getStatus() == HttpStatus.OK) {
+            addValidators(exchange, handler, etag);
+        }
+        if (cache != null && result.getStatus() == HttpStatus.OK && responseMode == ResponseMode.STREAMING) {
+            streamAndCache(exchange, result, cache, cacheKey, handler.cachedBy(), seenGenerations);
+            return;
+        }
+        if (cache != null && result.getStatus() == HttpStatus.OK) {
+            byte[] body;
+            try {
+                body = toJsonBytes(result);
+            } catch (RuntimeException e) {
+                System.out.println("Ошибка при сериализации ответа: " + e.getMessage());
+                sendJson(exchange, internalServerError("Произошла непредвиденная ошибка"));
+                return;
+            }
+            cache.put(cacheKey, body, handler.cachedBy(), seenGenerations);
+            sendBytes(exchange, result.getStatus(), body, "MISS");
+            return;
+        }
+        sendJson(exchange, result);
+    }
+
+    // Дескриптор не привязан к экземпляру: получатель передаётся первым аргументом при вызове, поэтому
+    // конструктору не нужно отдавать this наружу до завершения инициализации подкласса.
+    private static MethodHandle createInvoker(Method method) {
+        if (!HttpResult.class.isAssignableFrom(method.getReturnType())) {
+            throw new HttpServerInitializationError(
+                    "Метод контроллера должен возвращать " + HttpResult.class.getName() + ": " + method);
+        }
+        try {
+            return MethodHandles.publicLookup()
+                    .unreflect(method)
+                    .asSpreader(Object[].class, method.getParameterCount())
+                    .asType(MethodType.methodType(HttpResult.class, ApiController.class, Object[].class));
+        } catch (IllegalAccessException e) {
+            throw new HttpServerInitializationError("Метод контроллера недоступен: " + method, e);
+        }
+    }
+
+    private static ParameterBinder[] createBinders(Route route, Method method) {
+        Parameter[] inferParams = method.getParameters();
+        ParameterBinder[] binders = new ParameterBinder[inferParams.length];
+        for (int i = 0; i < inferParams.length; i++) {
+            binders[i] = createBinder(route, method, inferParams[i]);
+        }
+        return binders;
+    }
+
+    private static ParameterBinder createBinder(Route route, Method method, Parameter current) {
+        Class<?> type = current.getType();
+
+        if (current.isAnnotationPresent(FromBody.class)) {
+            return (exchange, matcher) -> {
+                String bodyStr = new String(exchange.getRequestBody().readAllBytes(), StandardCharsets.UTF_8);
                 try {
-                    HttpResult<?> result = (HttpResult<?>) m.invoke(this, params);
-                    sendJson(exchange, result);
-                    return;
-                } catch (IllegalAccessException | InvocationTargetException e) {
-                    System.out.println("Ошибка обработки запроса" + e.getMessage());
-                    sendJson(exchange, internalServerError("Произошла непредвиденная ошибка"));
-                    return;
+                    return gson.fromJson(bodyStr, type);
+                } catch (JsonSyntaxException e) {
+                    System.out.println("Ошибка десериализации: " + e.getMessage());
+                    throw new RequestBindingException("Ошибка: Некорректное тело запроса");
                 }
+            };
+        }
+
+        if (current.isAnnotationPresent(FromPath.class)) {
+            String pathParamName = current.getAnnotation(FromPath.class).name();
+            if (route.isStatic() || !route.getTemplate().contains("{" + pathParamName + "}")) {
+                throw new HttpServerInitializationError(
+                        "Параметр пути " + pathParamName + " отсутствует в шаблоне " + route.getTemplate());
+            }
+            if (type == int.class || type == Integer.class) {
+                String message = String.format("Ошибка: Неверный формат параметра пути. Путь %s, где %s - целое число",
+                        route.getTemplate(), pathParamName);
+                return (exchange, matcher) -> {
+                    try {
+                        return Integer.parseInt(matcher.group(pathParamName));
+                    } catch (NumberFormatException e) {
+                        throw new RequestBindingException(message);
+                    }
+                };
+            }
+            if (type == String.class) {
+                return (exchange, matcher) -> matcher.group(pathParamName);
             }
         }
-        HttpResult<HttpErrorDto> notImplementedResult = notImplemented(HttpStatus.NOT_IMPLEMENTED.getTitle());
-        sendJson(exchange, notImplementedResult);
+
+        if (current.isAnnotationPresent(FromQuery.class)) {
+            String queryParamName = current.getAnnotation(FromQuery.class).name();
+            if (type == Integer.class) {
+                String message = String.format("Ошибка: Неверный формат параметра запроса %s - ожидается целое число",
+                        queryParamName);
+                return (exchange, matcher) -> {
+                    String value = queryParam(exchange, queryParamName);
+                    try {
+                        return value == null ? null : Integer.parseInt(value);
+                    } catch (NumberFormatException e) {
+                        throw new RequestBindingException(message);
+                    }
+                };
+            }
+            if (type == Instant.class) {
+                String message = String.format(
+                        "Ошибка: Неверный формат параметра запроса %s - ожидается момент времени ISO-8601", queryParamName);
+                return (exchange, matcher) -> {
+                    String value = queryParam(exchange, queryParamName);
+                    try {
+                        return value == null ? null : Instant.parse(value);
+                    } catch (DateTimeParseException e) {
+                        throw new RequestBindingException(message);
+                    }
+                };
+            }
+            if (type == String.class) {
+                return (exchange, matcher) -> queryParam(exchange, queryParamName);
+            }
+        }
+
+        throw new HttpServerInitializationError("Недопустимый тип параметра в методе: " + method + " " + current);
+    }
+
+    private static String queryParam(HttpExchange exchange, String name) {
+        String query = exchange.getRequestURI().getRawQuery();
+        if (query == null) {
+            return null;
+        }
+        for (String pair : query.split("&")) {
+            int eq = pair.indexOf('=');
+            String key = eq < 0 ? pair : pair.substring(0, eq);
+            if (URLDecoder.decode(key, StandardCharsets.UTF_8).equals(name)) {
+                return eq < 0 ? "" : URLDecoder.decode(pair.substring(eq + 1), StandardCharsets.UTF_8);
+            }
+        }
+        return null;
     }
 
     protected HttpResult<HttpErrorDto> notImplemented(String message) {
@@ -142,14 +338,136 @@ public abstract class ApiController implements HttpHandler {
 
     private void sendJson(HttpExchange exchange, HttpResult<?> result) {
         try {
-            var body = gson.toJson(result.getBody());
-            byte[] resp = body.getBytes(StandardCharsets.UTF_8);
             exchange.getResponseHeaders().add("Content-Type", "application/json;charset=utf-8");
+            if (responseMode == ResponseMode.STREAMING) {
+                streamJson(exchange, result, exchange.getResponseBody());
+                return;
+            }
+            byte[] resp = toJsonBytes(result);
             exchange.sendResponseHeaders(result.getStatus().getCode(), resp.length);
             exchange.getResponseBody().write(resp);
+        } catch (Throwable e) {
+            System.out.println("Ошибка при отправке: " + e.getMessage());
+        } finally {
             exchange.close();
+        }
+    }
+
+    private static void addValidators(HttpExchange exchange, Route.Handler handler, String etag) {
+        if (etag == null) {
+            return;
+        }
+        exchange.getResponseHeaders().set("ETag", etag);
+        exchange.getResponseHeaders().set("Last-Modified", resourceVersions.lastModified(handler.cachedBy()));
+    }
+
+    // Промах кэша в потоковом режиме: ответ пишется клиенту по мере сериализации, а копия тела сохраняется
+    // в кэш, только если уложилась в лимит записи.
+    private void streamAndCache(HttpExchange exchange, HttpResult<?> result, ResponseCache cache, String cacheKey,
+                                TaskType[] dependsOn, long[] seenGenerations) {
+        var capture = new CapturingOutputStream(exchange.getResponseBody(), ResponseCache.MAX_ENTRY_BYTES);
+        try {
+            exchange.getResponseHeaders().add("Content-Type", "application/json;charset=utf-8");
+            exchange.getResponseHeaders().add(CACHE_STATUS_HEADER, "MISS");
+            streamJson(exchange, result, capture);
+            byte[] body = capture.captured();
+            if (body != null) {
+                cache.put(cacheKey, body, dependsOn, seenGenerations);
+            }
+        } catch (Throwable e) {
+            System.out.println("Ошибка при отправке: " + e.getMessage());
+        } finally {
+            exchange.close();
+        }
+    }
+
+    private void sendNotModified(HttpExchange exchange) {
+        try {
+            exchange.sendResponseHeaders(HttpStatus.NOT_MODIFIED.getCode(), -1);
         } catch (Throwable e) {
             System.out.println("Ошибка при отправке: " + e.getMessage());
+        } finally {
+            exchange.close();
+        }
+    }
+
+    private void sendBytes(HttpExchange exchange, HttpStatus status, byte[] body, String cacheStatus) {
+        try {
+            exchange.getResponseHeaders().add("Content-Type", "application/json;charset=utf-8");
+            exchange.getResponseHeaders().add(CACHE_STATUS_HEADER, cacheStatus);
+            exchange.sendResponseHeaders(status.getCode(), body.length);
+            exchange.getResponseBody().write(body);
+        } catch (Throwable e) {
+            System.out.println("Ошибка при отправке: " + e.getMessage());
+        } finally {
+            exchange.close();
+        }
+    }
+
+    private static byte[] toJsonBytes(HttpResult<?> result) {
+        Object body = result.getBody() instanceof Stream<?> stream ? stream.toList() : result.getBody();
+        return gson.toJson(body).getBytes(StandardCharsets.UTF_8);
+    }
+
+    private void streamJson(HttpExchange exchange, HttpResult<?> result, OutputStream body) throws IOException {
+        exchange.sendResponseHeaders(result.getStatus().getCode(), 0);
+        var out = new OutputStreamWriter(new BufferedOutputStream(body, STREAM_BUFFER_SIZE),
+                StandardCharsets.UTF_8);
+        try (JsonWriter writer = gson.newJsonWriter(out)) {
+            if (result.getBody() instanceof Stream<?> stream) {
+                writer.beginArray();
+                try (stream) {
+                    stream.forEachOrdered(element -> gson.toJson(element, element.getClass(), writer));
+                }
+                writer.endArray();
+            } else if (result.getBody() == null) {
+                writer.nullValue();
+            } else {
+                gson.toJson(result.getBody(), result.getBody().getClass(), writer);
+            }
+        }
+    }
+
+    /**
+     * Копирует записанное в буфер, пока его размер не превысит {@code limit}; после этого копия отбрасывается.
+     */
+    private static final class CapturingOutputStream extends FilterOutputStream {
+        private final int limit;
+        private ByteArrayOutputStream copy = new ByteArrayOutputStream();
+
+        CapturingOutputStream(OutputStream out, int limit) {
+            super(out);
+            this.limit = limit;
+        }
+
+        @Override
+        public void write(int b) throws IOException {
+            out.write(b);
+            capture(new byte[]{(byte) b}, 0, 1);
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) throws IOException {
+            out.write(b, off, len);
+            capture(b, off, len);
+        }
+
+        private void capture(byte[] b, int off, int len) {
+            if (copy == null) {
+                return;
+            }
+            if (copy.size() + len > limit) {
+                copy = null;
+                return;
+            }
+            copy.write(b, off, len);
+        }
+
+        /**
+         * Полное тело или {@code null}, если оно превысило лимит.
+         */
+        byte[] captured() {
+            return copy == null ? null : copy.toByteArray();
         }
     }
-}
\ No newline at end of file
+}
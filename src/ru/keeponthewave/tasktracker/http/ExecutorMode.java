@@ -0,0 +1,29 @@
+package ru.keeponthewave.tasktracker.http;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * Режим обработки запросов {@link com.sun.net.httpserver.HttpServer}.
+ * <p>
+ * {@link #DISPATCHER} выполняет все запросы последовательно в потоке диспетчера, поэтому с ним безопасна
+ * любая реализация {@code TaskManager}. Остальные режимы обрабатывают запросы параллельно:
+ * с ними безопасен только {@code ConcurrentTaskManager}. {@code InMemoryTaskManager} не синхронизирован
+ * и будет повреждён конкурентными изменениями. {@code FileBackedTaskManager} сериализует операции
+ * одним монитором, но отдаёт живые эпики, которые контроллеры читают уже вне монитора.
+ */
+public enum ExecutorMode {
+    DISPATCHER,
+    FIXED_POOL,
+    WORK_STEALING,
+    VIRTUAL_THREADS;
+
+    public ExecutorService createExecutor() {
+        return switch (this) {
+            case DISPATCHER -> null;
+            case FIXED_POOL -> Executors.newFixedThreadPool(Runtime.getRuntime().availableProcessors());
+            case WORK_STEALING -> Executors.newWorkStealingPool();
+            case VIRTUAL_THREADS -> Executors.newVirtualThreadPerTaskExecutor();
+        };
+    }
+}
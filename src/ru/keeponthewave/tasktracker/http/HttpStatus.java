@@ -3,6 +3,7 @@ package ru.keeponthewave.tasktracker.http;
 public enum HttpStatus {
     OK(200, "200 Ok"),
     CREATED(201, "201 Created"),
+    NOT_MODIFIED(304, "304 Not modified"),
     BAD_REQUEST(400, "400 Bad request"),
     NOT_FOUND(404, "404 Not found"),
     NOT_ACCEPTABLE(406, "406 Not Acceptable"),
@@ -0,0 +1,11 @@
+package ru.keeponthewave.tasktracker.http;
+
+import com.sun.net.httpserver.HttpExchange;
+
+import java.io.IOException;
+import java.util.regex.Matcher;
+
+@FunctionalInterface
+interface ParameterBinder {
+    Object bind(HttpExchange exchange, Matcher pathMatcher) throws IOException;
+}
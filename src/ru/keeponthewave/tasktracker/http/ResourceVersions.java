@@ -0,0 +1,59 @@
+package ru.keeponthewave.tasktracker.http;
+
+import ru.keeponthewave.tasktracker.http.ioc.InjectableConstructor;
+import ru.keeponthewave.tasktracker.managers.TaskManager;
+import ru.keeponthewave.tasktracker.model.TaskType;
+
+import java.time.Instant;
+import java.time.ZoneOffset;
+import java.time.format.DateTimeFormatter;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * Валидаторы условных GET-запросов для ответов, зависящих от задач заданных типов. ETag строится из версии
+ * менеджера и случайной метки экземпляра, поэтому после перезапуска сервера старые ETag не совпадут.
+ */
+public class ResourceVersions {
+    private final TaskManager manager;
+    private final String instanceTag = Long.toString(ThreadLocalRandom.current().nextLong() & Long.MAX_VALUE, 36);
+
+    @InjectableConstructor
+    public ResourceVersions(TaskManager manager) {
+        this.manager = manager;
+    }
+
+    String etag(TaskType[] types) {
+        long version = 0;
+        for (TaskType type : types) {
+            version = Math.max(version, manager.getVersion(type));
+        }
+        return "\"" + instanceTag + "-" + version + "\"";
+    }
+
+    String lastModified(TaskType[] types) {
+        Instant lastModified = Instant.EPOCH;
+        for (TaskType type : types) {
+            Instant modified = manager.getLastModified(type);
+            if (modified.isAfter(lastModified)) {
+                lastModified = modified;
+            }
+        }
+        return DateTimeFormatter.RFC_1123_DATE_TIME.format(lastModified.atOffset(ZoneOffset.UTC));
+    }
+
+    static boolean matches(String ifNoneMatch, String etag) {
+        if (ifNoneMatch == null) {
+            return false;
+        }
+        for (String candidate : ifNoneMatch.split(",")) {
+            candidate = candidate.trim();
+            if (candidate.startsWith("W/")) {
+                candidate = candidate.substring(2);
+            }
+            if (candidate.equals("*") || candidate.equals(etag)) {
+                return true;
+            }
+        }
+        return false;
+    }
+}
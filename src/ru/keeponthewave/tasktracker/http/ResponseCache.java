@@ -0,0 +1,111 @@
+package ru.keeponthewave.tasktracker.http;
+
+import ru.keeponthewave.tasktracker.http.ioc.InjectableConstructor;
+import ru.keeponthewave.tasktracker.managers.TaskManager;
+import ru.keeponthewave.tasktracker.managers.TaskMutationListener;
+import ru.keeponthewave.tasktracker.model.TaskType;
+
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Кэш готовых UTF-8 тел ответов, помеченных {@link ru.keeponthewave.tasktracker.http.ioc.CachedResponse}.
+ * <p>
+ * Запись сбрасывается при изменении задач любого из типов, от которых она зависит. Чтобы ответ, собранный
+ * до изменения, не попал в кэш после сброса, перед сборкой запоминаются поколения этих типов, и запись
+ * сохраняется, только если они не изменились.
+ * <p>
+ * При превышении лимитов по числу записей или объёму вытесняются давно не запрошенные записи. Сбросы
+ * начинают приходить после {@link #subscribe()}.
+ */
+public class ResponseCache implements TaskMutationListener, AutoCloseable {
+    static final int MAX_ENTRIES = 256;
+    static final int MAX_ENTRY_BYTES = 8 * 1024 * 1024;
+    static final long MAX_TOTAL_BYTES = 64L * 1024 * 1024;
+
+    private final TaskManager manager;
+    // Порядок доступа: первой идёт самая давно запрошенная запись. Доступ под блокировкой самой карты.
+    private final LinkedHashMap<String, Entry> entries = new LinkedHashMap<>(16, 0.75f, true);
+    private final AtomicLongArray generations = new AtomicLongArray(TaskType.values().length);
+    private long totalBytes;
+
+    private record Entry(byte[] body, TaskType[] dependsOn) {
+        boolean dependsOn(TaskType type) {
+            for (TaskType dependency : dependsOn) {
+                if (dependency == type) {
+                    return true;
+                }
+            }
+            return false;
+        }
+    }
+
+    @InjectableConstructor
+    public ResponseCache(TaskManager manager) {
+        this.manager = manager;
+    }
+
+    public void subscribe() {
+        manager.addMutationListener(this);
+    }
+
+    byte[] get(String key) {
+        synchronized (entries) {
+            var entry = entries.get(key);
+            return entry == null ? null : entry.body();
+        }
+    }
+
+    long[] generations(TaskType[] types) {
+        long[] seen = new long[types.length];
+        for (int i = 0; i < types.length; i++) {
+            seen[i] = generations.get(types[i].ordinal());
+        }
+        return seen;
+    }
+
+    void put(String key, byte[] body, TaskType[] dependsOn, long[] seen) {
+        if (body.length > MAX_ENTRY_BYTES) {
+            return;
+        }
+        synchronized (entries) {
+            for (int i = 0; i < dependsOn.length; i++) {
+                if (generations.get(dependsOn[i].ordinal()) != seen[i]) {
+                    return;
+                }
+            }
+            var existing = entries.put(key, new Entry(body, dependsOn));
+            totalBytes += body.length - (existing == null ? 0 : existing.body().length);
+            Iterator<Entry> eldest = entries.values().iterator();
+            while (entries.size() > MAX_ENTRIES || totalBytes > MAX_TOTAL_BYTES) {
+                totalBytes -= eldest.next().body().length;
+                eldest.remove();
+            }
+        }
+    }
+
+    @Override
+    public void onMutation(TaskType type, Integer id) {
+        generations.incrementAndGet(type.ordinal());
+        synchronized (entries) {
+            Iterator<Entry> iterator = entries.values().iterator();
+            while (iterator.hasNext()) {
+                var entry = iterator.next();
+                if (entry.dependsOn(type)) {
+                    totalBytes -= entry.body().length;
+                    iterator.remove();
+                }
+            }
+        }
+    }
+
+    @Override
+    public void close() {
+        manager.removeMutationListener(this);
+        synchronized (entries) {
+            entries.clear();
+            totalBytes = 0;
+        }
+    }
+}
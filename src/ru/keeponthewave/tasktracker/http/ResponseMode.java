@@ -0,0 +1,15 @@
+package ru.keeponthewave.tasktracker.http;
+
+/**
+ * Способ отправки JSON-ответа.
+ * <p>
+ * {@link #BUFFERED} сериализует тело в строку целиком и отправляет его с известной длиной.
+ * {@link #STREAMING} пишет тело через {@code JsonWriter} прямо в поток ответа с chunked-кодированием:
+ * первые байты уходят сразу, а тело-{@link java.util.stream.Stream} сериализуется поэлементно, не собираясь
+ * в память. Статус в этом режиме отправляется до сериализации, поэтому ошибка посреди ответа только
+ * обрывает соединение.
+ */
+public enum ResponseMode {
+    BUFFERED,
+    STREAMING
+}
@@ -0,0 +1,48 @@
+package ru.keeponthewave.tasktracker.http;
+
+import ru.keeponthewave.tasktracker.model.TaskType;
+
+import java.lang.invoke.MethodHandle;
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+class Route {
+    private static final Pattern PATH_PARAM = Pattern.compile("\\{(\\w+)}");
+
+    private final String template;
+    private final Pattern pattern;
+    private final Map<HttpMethod, Handler> handlers = new EnumMap<>(HttpMethod.class);
+
+    record Handler(MethodHandle invoker, ParameterBinder[] binders, TaskType[] cachedBy) {
+    }
+
+    Route(String template) {
+        this.template = template;
+        this.pattern = PATH_PARAM.matcher(template).find()
+                ? Pattern.compile("^" + PATH_PARAM.matcher(template).replaceAll("(?<$1>[^/]+)") + "$")
+                : null;
+    }
+
+    String getTemplate() {
+        return template;
+    }
+
+    boolean isStatic() {
+        return pattern == null;
+    }
+
+    Handler getHandler(HttpMethod method) {
+        return handlers.get(method);
+    }
+
+    void addHandler(HttpMethod method, Handler handler) {
+        handlers.put(method, handler);
+    }
+
+    Matcher match(String path) {
+        Matcher matcher = pattern.matcher(path);
+        return matcher.matches() ? matcher : null;
+    }
+}
@@ -0,0 +1,19 @@
+package ru.keeponthewave.tasktracker.http.ioc;
+
+import ru.keeponthewave.tasktracker.model.TaskType;
+
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * Успешный ответ GET-метода кэшируется в сериализованном виде и сбрасывается при изменении задач
+ * перечисленных типов. Версии этих типов также дают ответу ETag и Last-Modified, а запрос с совпавшим
+ * If-None-Match получает 304 без вызова метода контроллера.
+ */
+@Retention(RetentionPolicy.RUNTIME)
+@Target(ElementType.METHOD)
+public @interface CachedResponse {
+    TaskType[] invalidatedBy();
+}
@@ -43,9 +43,10 @@ public class InversionOfControlContainer {
         for (int i = 0; i < inferParams.length; i++) {
             var inferParam = inferParams[i];
             if (inferParam.isAnnotationPresent(InjectValue.class)) {
-                String token = inferParam.getAnnotation(InjectValue.class).token();
+                var injectValue = inferParam.getAnnotation(InjectValue.class);
+                String token = injectValue.token();
                 var value = valueProvider.get(token);
-                if (value == null) {
+                if (value == null && injectValue.required()) {
                     throw new IocException("Невозмножно внедрить значение: " + token);
                 }
                 params[i] = value;
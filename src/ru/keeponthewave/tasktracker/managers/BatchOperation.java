@@ -0,0 +1,33 @@
+package ru.keeponthewave.tasktracker.managers;
+
+import ru.keeponthewave.tasktracker.model.SubTask;
+import ru.keeponthewave.tasktracker.model.Task;
+import ru.keeponthewave.tasktracker.model.TaskType;
+
+/**
+ * Операция пакета {@link TaskManager#applyBatch}. Подзадача, создаваемая в эпике из того же пакета,
+ * ссылается на него номером операции в {@code epicRef}, потому что id эпика до применения ещё неизвестен.
+ */
+public record BatchOperation(Action action, TaskType type, Integer id, Task task, Integer epicRef) {
+    public enum Action {
+        CREATE,
+        UPDATE,
+        DELETE
+    }
+
+    public static BatchOperation create(Task task) {
+        return new BatchOperation(Action.CREATE, task.getType(), null, task, null);
+    }
+
+    public static BatchOperation createInBatchEpic(SubTask subTask, int epicRef) {
+        return new BatchOperation(Action.CREATE, TaskType.SUBTASK, null, subTask, epicRef);
+    }
+
+    public static BatchOperation update(Task task) {
+        return new BatchOperation(Action.UPDATE, task.getType(), task.getId(), task, null);
+    }
+
+    public static BatchOperation delete(TaskType type, int id) {
+        return new BatchOperation(Action.DELETE, type, id, null, null);
+    }
+}
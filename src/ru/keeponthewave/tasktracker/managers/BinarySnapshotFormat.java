@@ -0,0 +1,333 @@
+package ru.keeponthewave.tasktracker.managers;
+
+import ru.keeponthewave.tasktracker.exceptions.FileManagerRestoreException;
+import ru.keeponthewave.tasktracker.model.EpicTask;
+import ru.keeponthewave.tasktracker.model.SubTask;
+import ru.keeponthewave.tasktracker.model.Task;
+import ru.keeponthewave.tasktracker.model.TaskStatus;
+import ru.keeponthewave.tasktracker.model.TaskType;
+
+import java.io.IOException;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.List;
+import java.util.zip.CRC32;
+
+/**
+ * Двоичный формат снимка.
+ * <pre>
+ * заголовок: "KBTS" | версия (u16) | зарезервировано (u16) | [с версии 2: покрытый сегмент журнала (i64)]
+ * блок:      число записей (i32) | длина данных (i32) | данные | CRC32 данных (i32)
+ * конец:     блок с нулевым числом записей
+ * запись:    длина (varint) | тип (u8) | id (varint) | статус (u8, 0 - нет) | имя | описание
+ *            | флаги (u8) | [начало, epoch millis (i64)] | [длительность, минуты (varint)] | [id эпика (varint)]
+ * строка:    длина + 1 (varint, 0 - null) | байты UTF-8
+ * </pre>
+ */
+class BinarySnapshotFormat implements SnapshotFormat {
+    static final byte[] MAGIC = {'K', 'B', 'T', 'S'};
+    static final short VERSION = 2;
+
+    private static final int HEADER_SIZE = MAGIC.length + 4 + Long.BYTES;
+    private static final int BLOCK_HEADER_SIZE = 8;
+    private static final int BLOCK_PAYLOAD_LIMIT = 64 * 1024;
+
+    private static final int HAS_START_TIME = 1;
+    private static final int HAS_DURATION = 1 << 1;
+    private static final int HAS_EPIC = 1 << 2;
+
+    private static final TaskType[] TYPES = TaskType.values();
+    private static final TaskStatus[] STATUSES = TaskStatus.values();
+
+    @Override
+    public void write(FileChannel channel,
+                      long coveredSegment,
+                      Collection<? extends Task> tasks,
+                      Collection<? extends Task> epics,
+                      Collection<? extends Task> subTasks) throws IOException {
+        var header = ByteBuffer.allocate(HEADER_SIZE).put(MAGIC).putShort(VERSION).putShort((short) 0)
+                .putLong(coveredSegment);
+        writeFully(channel, header.flip());
+
+        var block = new ByteSink(BLOCK_PAYLOAD_LIMIT + 1024);
+        var record = new ByteSink(256);
+        int recordCount = 0;
+        for (var group : List.of(tasks, epics, subTasks)) {
+            for (var task : group) {
+                record.reset();
+                encode(task, record);
+                block.writeVarLong(record.length);
+                block.write(record.bytes, 0, record.length);
+                recordCount++;
+                if (block.length >= BLOCK_PAYLOAD_LIMIT) {
+                    writeBlock(channel, block, recordCount);
+                    block.reset();
+                    recordCount = 0;
+                }
+            }
+        }
+        if (recordCount > 0) {
+            writeBlock(channel, block, recordCount);
+            block.reset();
+        }
+        writeBlock(channel, block, 0);
+    }
+
+    @Override
+    public List<Task> read(Path file) throws IOException {
+        List<Block> blocks = scanBlocks(SnapshotFormat.map(file), file);
+        return SnapshotFormat.concat(blocks.parallelStream()
+                .map(block -> decodeBlock(block, file))
+                .toList());
+    }
+
+    @Override
+    public long readCoveredSegment(Path file) throws IOException {
+        try {
+            return readHeader(SnapshotFormat.map(file), file);
+        } catch (BufferUnderflowException e) {
+            throw corrupted("Файл обрезан или повреждён", 0, file);
+        }
+    }
+
+    @Override
+    public int recordNumber(int index) {
+        return index + 1;
+    }
+
+    private record Block(ByteBuffer payload, int recordCount, int firstRecord, int checksum) {
+    }
+
+    // Заголовки блоков читаются последовательно - это дёшево, - а сами блоки разбираются параллельно
+    // независимыми срезами буфера.
+    private static List<Block> scanBlocks(ByteBuffer buffer, Path file) {
+        var blocks = new ArrayList<Block>();
+        int recordNum = 1;
+        try {
+            readHeader(buffer, file);
+            while (true) {
+                int recordCount = buffer.getInt();
+                int length = buffer.getInt();
+                if (recordCount == 0) {
+                    return blocks;
+                }
+                if (recordCount < 0 || length < 0 || length > buffer.remaining() - Integer.BYTES) {
+                    throw corrupted("Повреждён заголовок блока", recordNum, file);
+                }
+                var payload = buffer.slice(buffer.position(), length);
+                buffer.position(buffer.position() + length);
+                blocks.add(new Block(payload, recordCount, recordNum, buffer.getInt()));
+                recordNum += recordCount;
+            }
+        } catch (BufferUnderflowException | IndexOutOfBoundsException e) {
+            throw corrupted("Файл обрезан или повреждён", recordNum, file);
+        }
+    }
+
+    private static List<Task> decodeBlock(Block block, Path file) {
+        var crc = new CRC32();
+        crc.update(block.payload().duplicate());
+        if ((int) crc.getValue() != block.checksum()) {
+            throw corrupted("Контрольная сумма блока не совпадает", block.firstRecord(), file);
+        }
+
+        var payload = block.payload();
+        var strings = new StringDecoder();
+        var records = new ArrayList<Task>(block.recordCount());
+        int recordNum = block.firstRecord();
+        try {
+            for (int i = 0; i < block.recordCount(); i++, recordNum++) {
+                int recordLength = (int) readVarLong(payload);
+                var recordBuffer = payload.slice(payload.position(), recordLength);
+                payload.position(payload.position() + recordLength);
+                records.add(decode(recordBuffer, strings));
+            }
+        } catch (BufferUnderflowException | IndexOutOfBoundsException | IllegalArgumentException e) {
+            throw corrupted("Повреждённая запись", recordNum, file);
+        }
+        if (payload.hasRemaining()) {
+            throw corrupted("Лишние данные в блоке", recordNum, file);
+        }
+        return records;
+    }
+
+    private static long readHeader(ByteBuffer buffer, Path file) {
+        byte[] magic = new byte[MAGIC.length];
+        buffer.get(magic);
+        if (!Arrays.equals(magic, MAGIC)) {
+            throw corrupted("Файл не является двоичным снимком", 0, file);
+        }
+        short version = buffer.getShort();
+        if (version < 1 || version > VERSION) {
+            throw corrupted("Неподдерживаемая версия формата: " + version, 0, file);
+        }
+        buffer.getShort();
+        return version >= 2 ? buffer.getLong() : 0;
+    }
+
+    private static FileManagerRestoreException corrupted(String message, int recordNum, Path file) {
+        return new FileManagerRestoreException("Ошибка при восстановлении из файла: " + message, recordNum, file);
+    }
+
+    private static void encode(Task task, ByteSink out) {
+        out.writeByte(task.getType().ordinal());
+        out.writeVarLong(task.getId());
+        out.writeByte(task.getStatus() == null ? 0 : task.getStatus().ordinal() + 1);
+        out.writeString(task.getName());
+        out.writeString(task.getDescription());
+
+        Integer epicId = task instanceof SubTask subTask ? subTask.getEpicTaskId() : null;
+        boolean scheduled = !(task instanceof EpicTask);
+        int flags = (scheduled && task.getStartTime() != null ? HAS_START_TIME : 0)
+                | (scheduled && task.getDuration() != null ? HAS_DURATION : 0)
+                | (epicId != null ? HAS_EPIC : 0);
+        out.writeByte(flags);
+        if ((flags & HAS_START_TIME) != 0) {
+            out.writeLong(task.getStartTime().toEpochMilli());
+        }
+        if ((flags & HAS_DURATION) != 0) {
+            out.writeVarLong(task.getDuration().toMinutes());
+        }
+        if (epicId != null) {
+            out.writeVarLong(epicId);
+        }
+    }
+
+    private static Task decode(ByteBuffer in, StringDecoder strings) {
+        TaskType type = TYPES[in.get()];
+        int id = (int) readVarLong(in);
+        int statusCode = in.get();
+        TaskStatus status = statusCode == 0 ? null : STATUSES[statusCode - 1];
+        String name = strings.read(in);
+        String description = strings.read(in);
+        int flags = in.get();
+        Instant startTime = (flags & HAS_START_TIME) != 0 ? Instant.ofEpochMilli(in.getLong()) : null;
+        Duration duration = (flags & HAS_DURATION) != 0 ? Duration.ofMinutes(readVarLong(in)) : null;
+        Integer epicId = (flags & HAS_EPIC) != 0 ? (int) readVarLong(in) : null;
+
+        return switch (type) {
+            case TASK -> new Task(name, description, id, status, startTime, duration);
+            case EPIC -> new EpicTask(name, description, id);
+            case SUBTASK -> new SubTask(name, description, id, status, epicId, startTime, duration);
+        };
+    }
+
+    private static long readVarLong(ByteBuffer in) {
+        long value = 0;
+        for (int shift = 0; shift < 64; shift += 7) {
+            byte b = in.get();
+            value |= (long) (b & 0x7F) << shift;
+            if (b >= 0) {
+                return value;
+            }
+        }
+        throw new IllegalArgumentException("Слишком длинное число");
+    }
+
+    private static void writeBlock(FileChannel channel, ByteSink payload, int recordCount) throws IOException {
+        var crc = new CRC32();
+        crc.update(payload.bytes, 0, payload.length);
+        var header = ByteBuffer.allocate(BLOCK_HEADER_SIZE).putInt(recordCount).putInt(payload.length).flip();
+        if (recordCount == 0) {
+            writeFully(channel, header);
+            return;
+        }
+        var trailer = ByteBuffer.allocate(Integer.BYTES).putInt((int) crc.getValue()).flip();
+        writeFully(channel, header);
+        writeFully(channel, ByteBuffer.wrap(payload.bytes, 0, payload.length));
+        writeFully(channel, trailer);
+    }
+
+    private static void writeFully(FileChannel channel, ByteBuffer buffer) throws IOException {
+        while (buffer.hasRemaining()) {
+            channel.write(buffer);
+        }
+    }
+
+    private static final class ByteSink {
+        private byte[] bytes;
+        private int length;
+
+        ByteSink(int capacity) {
+            bytes = new byte[capacity];
+        }
+
+        void reset() {
+            length = 0;
+        }
+
+        void writeByte(int b) {
+            ensureCapacity(1);
+            bytes[length++] = (byte) b;
+        }
+
+        void write(byte[] source, int offset, int count) {
+            ensureCapacity(count);
+            System.arraycopy(source, offset, bytes, length, count);
+            length += count;
+        }
+
+        void writeLong(long value) {
+            ensureCapacity(Long.BYTES);
+            for (int shift = 56; shift >= 0; shift -= 8) {
+                bytes[length++] = (byte) (value >>> shift);
+            }
+        }
+
+        void writeVarLong(long value) {
+            ensureCapacity(10);
+            while ((value & ~0x7FL) != 0) {
+                bytes[length++] = (byte) ((value & 0x7F) | 0x80);
+                value >>>= 7;
+            }
+            bytes[length++] = (byte) value;
+        }
+
+        void writeString(String value) {
+            if (value == null) {
+                writeVarLong(0);
+                return;
+            }
+            byte[] encoded = value.getBytes(StandardCharsets.UTF_8);
+            writeVarLong(encoded.length + 1L);
+            write(encoded, 0, encoded.length);
+        }
+
+        private void ensureCapacity(int extra) {
+            if (length + extra > bytes.length) {
+                bytes = Arrays.copyOf(bytes, Math.max(bytes.length * 2, length + extra));
+            }
+        }
+    }
+
+    // Строки читаются прямо из отображённого буфера через переиспользуемый массив, без промежуточных
+    // объектов на каждую запись.
+    private static final class StringDecoder {
+        private byte[] scratch = new byte[256];
+
+        String read(ByteBuffer in) {
+            int length = (int) readVarLong(in) - 1;
+            if (length < 0) {
+                return null;
+            }
+            if (in.hasArray()) {
+                int offset = in.arrayOffset() + in.position();
+                in.position(in.position() + length);
+                return new String(in.array(), offset, length, StandardCharsets.UTF_8);
+            }
+            if (scratch.length < length) {
+                scratch = new byte[Math.max(length, scratch.length * 2)];
+            }
+            in.get(scratch, 0, length);
+            return new String(scratch, 0, length, StandardCharsets.UTF_8);
+        }
+    }
+}
@@ -0,0 +1,31 @@
+package ru.keeponthewave.tasktracker.managers;
+
+/**
+ * Идентификатор клиента, от имени которого выполняется текущий запрос. Запрос обрабатывается целиком в одном
+ * потоке, поэтому идентификатор хранится в ThreadLocal и выставляется на время обработки.
+ */
+public final class ClientContext {
+    public static final String ANONYMOUS = "";
+
+    private static final ThreadLocal<String> CURRENT = new ThreadLocal<>();
+
+    private ClientContext() {
+    }
+
+    public static String current() {
+        String clientId = CURRENT.get();
+        return clientId == null ? ANONYMOUS : clientId;
+    }
+
+    public static void set(String clientId) {
+        if (clientId == null || clientId.isBlank()) {
+            CURRENT.remove();
+        } else {
+            CURRENT.set(clientId);
+        }
+    }
+
+    public static void clear() {
+        CURRENT.remove();
+    }
+}
@@ -0,0 +1,176 @@
+package ru.keeponthewave.tasktracker.managers;
+
+import ru.keeponthewave.tasktracker.http.ioc.InjectValue;
+import ru.keeponthewave.tasktracker.http.ioc.InjectableConstructor;
+import ru.keeponthewave.tasktracker.model.Task;
+
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Потокобезопасная история просмотров.
+ * <p>
+ * Просмотр не трогает общий упорядоченный список: он получает порядковый номер и кладётся в буфер полосы
+ * текущего потока. Буферы сливаются в упорядоченную структуру тем потоком, которому удалось взять
+ * блокировку слива, - когда буфер наполнился или когда нужна актуальная история. Порядок восстанавливается
+ * по номерам, поэтому не важно, из какой полосы и в какой момент пришло событие. Читатели получают
+ * неизменяемый снимок из volatile-поля.
+ */
+public class ConcurrentHistoryManager implements HistoryManager {
+    private static final int DRAIN_THRESHOLD = 64;
+    private static final int STRIPES = Math.min(64,
+            Integer.highestOneBit(Math.max(1, Runtime.getRuntime().availableProcessors() * 4 - 1)) << 1);
+
+    private final int capacity;
+    private final AtomicLong sequence = new AtomicLong();
+    private final Stripe[] stripes = new Stripe[STRIPES];
+    private final ReentrantLock drainLock = new ReentrantLock();
+
+    // Изменяются только под drainLock.
+    private final TreeMap<Long, Task> byStamp = new TreeMap<>();
+    private final Map<Integer, Long> stampById = new HashMap<>();
+    private volatile boolean snapshotStale;
+
+    private volatile List<Task> snapshot = List.of();
+
+    private record Access(long stamp, Task task) {
+    }
+
+    private static final class Stripe {
+        private final ConcurrentLinkedQueue<Access> buffer = new ConcurrentLinkedQueue<>();
+        private final AtomicInteger size = new AtomicInteger();
+    }
+
+    public ConcurrentHistoryManager() {
+        this(InMemoryHistoryManager.DEFAULT_CAPACITY);
+    }
+
+    /**
+     * @param capacity сколько последних просмотренных задач хранить. {@code null} -
+     *                 {@link InMemoryHistoryManager#DEFAULT_CAPACITY}.
+     */
+    @InjectableConstructor
+    public ConcurrentHistoryManager(@InjectValue(token = "historyCapacity", required = false) Integer capacity) {
+        if (capacity != null && capacity < 1) {
+            throw new IllegalArgumentException("Размер истории должен быть положительным: " + capacity);
+        }
+        this.capacity = capacity == null ? InMemoryHistoryManager.DEFAULT_CAPACITY : capacity;
+        for (int i = 0; i < STRIPES; i++) {
+            stripes[i] = new Stripe();
+        }
+    }
+
+    @Override
+    public boolean isConcurrent() {
+        return true;
+    }
+
+    @Override
+    public void add(Task task) {
+        var stripe = stripes[(int) (Thread.currentThread().threadId() & (STRIPES - 1))];
+        stripe.buffer.offer(new Access(sequence.incrementAndGet(), task));
+        if (stripe.size.incrementAndGet() >= DRAIN_THRESHOLD && drainLock.tryLock()) {
+            try {
+                drain();
+            } finally {
+                drainLock.unlock();
+            }
+        }
+    }
+
+    @Override
+    public void remove(int id) {
+        removeAll(List.of(id));
+    }
+
+    @Override
+    public void removeAll(Collection<Integer> ids) {
+        drainLock.lock();
+        try {
+            drain();
+            for (int id : ids) {
+                var stamp = stampById.remove(id);
+                if (stamp != null) {
+                    byStamp.remove(stamp);
+                    snapshotStale = true;
+                }
+            }
+        } finally {
+            drainLock.unlock();
+        }
+    }
+
+    @Override
+    public List<Task> getHistory() {
+        return currentSnapshot();
+    }
+
+    @Override
+    public List<Task> getHistory(int limit) {
+        var current = currentSnapshot();
+        int count = Math.min(Math.max(limit, 0), current.size());
+        return List.copyOf(current.subList(current.size() - count, current.size()));
+    }
+
+    // Снимок пересобирается, только если с прошлого раза что-то поменялось; иначе чтение не берёт блокировок.
+    private List<Task> currentSnapshot() {
+        if (!snapshotStale && !hasPending()) {
+            return snapshot;
+        }
+        drainLock.lock();
+        try {
+            drain();
+            if (snapshotStale) {
+                snapshot = List.copyOf(byStamp.values());
+                snapshotStale = false;
+            }
+            return snapshot;
+        } finally {
+            drainLock.unlock();
+        }
+    }
+
+    private boolean hasPending() {
+        for (var stripe : stripes) {
+            if (stripe.size.get() > 0) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private void drain() {
+        for (var stripe : stripes) {
+            Access access;
+            while ((access = stripe.buffer.poll()) != null) {
+                stripe.size.decrementAndGet();
+                apply(access);
+            }
+        }
+    }
+
+    private void apply(Access access) {
+        int id = access.task().getId();
+        var previous = stampById.get(id);
+        if (previous != null) {
+            if (previous > access.stamp()) {
+                return;
+            }
+            byStamp.remove(previous);
+        }
+        stampById.put(id, access.stamp());
+        byStamp.put(access.stamp(), access.task());
+        if (byStamp.size() > capacity) {
+            var eldest = byStamp.pollFirstEntry();
+            stampById.remove(eldest.getValue().getId());
+        }
+        snapshotStale = true;
+    }
+}
@@ -0,0 +1,317 @@
+package ru.keeponthewave.tasktracker.managers;
+
+import ru.keeponthewave.tasktracker.http.ioc.InjectableConstructor;
+import ru.keeponthewave.tasktracker.model.EpicTask;
+import ru.keeponthewave.tasktracker.model.SubTask;
+import ru.keeponthewave.tasktracker.model.Task;
+
+import java.time.Instant;
+import java.util.AbstractCollection;
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.Supplier;
+import java.util.stream.Stream;
+
+/**
+ * Потокобезопасный менеджер задач. Чтение задач идёт без блокировок из {@link ConcurrentSkipListMap}.
+ * Изменения одной задачи или одного эпика с его подзадачами сериализуются полосатой блокировкой по id,
+ * индекс приоритетов защищён отдельной блокировкой, которая берётся только когда изменение его касается.
+ * Порядок захвата: полосы по возрастанию номера, затем блокировка расписания, затем история.
+ * Потокобезопасная история ({@link HistoryManager#isConcurrent()}) не блокируется вовсе.
+ */
+public class ConcurrentTaskManager extends InMemoryTaskManager {
+    private static final int LOCK_STRIPES = 64;
+
+    private final Lock[] stripes = new Lock[LOCK_STRIPES];
+    private final ReadWriteLock scheduleLock = new ReentrantReadWriteLock();
+    private final AtomicInteger idGenerator = new AtomicInteger();
+    private final Object historyLock;
+
+    @InjectableConstructor
+    public ConcurrentTaskManager(HistoryManager historyManager) {
+        super(historyManager, new ConcurrentSkipListMap<>(), new ConcurrentSkipListMap<>(),
+                new ConcurrentSkipListMap<>());
+        for (int i = 0; i < LOCK_STRIPES; i++) {
+            stripes[i] = new ReentrantLock();
+        }
+        historyLock = historyManager.isConcurrent() ? null : historyManager;
+    }
+
+    @Override
+    public Task getTaskById(int id) {
+        return recordView(taskMap, id);
+    }
+
+    @Override
+    public Task createTask(Task task) {
+        return canPrioritized(task) ? withSchedule(() -> super.createTask(task)) : super.createTask(task);
+    }
+
+    @Override
+    public Task updateTask(Task task) {
+        if (task.getId() == null) {
+            return super.updateTask(task);
+        }
+        return withStripe(task.getId(), () -> touchesSchedule(task, taskMap.get(task.getId()))
+                ? withSchedule(() -> super.updateTask(task))
+                : super.updateTask(task));
+    }
+
+    @Override
+    public Task deleteTaskById(int id) {
+        return withStripe(id, () -> touchesSchedule(null, taskMap.get(id))
+                ? withSchedule(() -> super.deleteTaskById(id))
+                : super.deleteTaskById(id));
+    }
+
+    @Override
+    public void deleteAllTasks() {
+        withAllLocks(super::deleteAllTasks);
+    }
+
+    @Override
+    public SubTask getSubTaskById(int id) {
+        return recordView(subTaskMap, id);
+    }
+
+    @Override
+    public SubTask createSubTask(SubTask task) {
+        if (task.getEpicTaskId() == null) {
+            return super.createSubTask(task);
+        }
+        return withStripe(task.getEpicTaskId(), () -> canPrioritized(task)
+                ? withSchedule(() -> super.createSubTask(task))
+                : super.createSubTask(task));
+    }
+
+    @Override
+    public SubTask updateSubTask(SubTask task) {
+        var existing = task.getId() == null ? null : subTaskMap.get(task.getId());
+        if (existing == null) {
+            return super.updateSubTask(task);
+        }
+        return withStripe(existing.getEpicTaskId(), () -> touchesSchedule(task, subTaskMap.get(task.getId()))
+                ? withSchedule(() -> super.updateSubTask(task))
+                : super.updateSubTask(task));
+    }
+
+    @Override
+    public SubTask deleteSubTaskById(int id) {
+        var existing = subTaskMap.get(id);
+        if (existing == null) {
+            return super.deleteSubTaskById(id);
+        }
+        return withStripe(existing.getEpicTaskId(), () -> touchesSchedule(null, subTaskMap.get(id))
+                ? withSchedule(() -> super.deleteSubTaskById(id))
+                : super.deleteSubTaskById(id));
+    }
+
+    @Override
+    public void deleteAllSubTasks() {
+        withAllLocks(super::deleteAllSubTasks);
+    }
+
+    @Override
+    public Collection<SubTask> getEpicSubTasks(EpicTask task) {
+        return withStripe(task.getId(), () -> super.getEpicSubTasks(task));
+    }
+
+    // Подзадачи и агрегаты эпика меняются под блокировкой его полосы, поэтому наружу эпики отдаются
+    // копиями, снятыми под этой блокировкой.
+    @Override
+    public EpicTask getEpicTaskById(int id) {
+        return snapshotOf(recordView(epicTaskMap, id));
+    }
+
+    // Как и в базовом менеджере - живое представление хранилища, но каждый эпик при обходе копируется.
+    @Override
+    public Collection<EpicTask> getAllEpicTasks() {
+        Collection<EpicTask> epics = epicTaskMap.values();
+        return new AbstractCollection<>() {
+            @Override
+            public Iterator<EpicTask> iterator() {
+                return epics.stream().map(ConcurrentTaskManager.this::snapshotOf).iterator();
+            }
+
+            @Override
+            public int size() {
+                return epics.size();
+            }
+        };
+    }
+
+    @Override
+    public Page<EpicTask> getEpicTasksPage(Integer afterId, int limit) {
+        var page = super.getEpicTasksPage(afterId, limit);
+        return new Page<>(page.items().stream().map(this::snapshotOf).toList(), page.nextCursor());
+    }
+
+    @Override
+    public EpicTask updateEpicTask(EpicTask task) {
+        if (task.getId() == null) {
+            return super.updateEpicTask(task);
+        }
+        return withStripe(task.getId(), () -> super.updateEpicTask(task));
+    }
+
+    @Override
+    public EpicTask deleteEpicTaskById(int id) {
+        return withStripe(id, () -> withSchedule(() -> super.deleteEpicTaskById(id)));
+    }
+
+    @Override
+    public void deleteAllEpicTasks() {
+        withAllLocks(super::deleteAllEpicTasks);
+    }
+
+    @Override
+    public List<Task> applyBatch(List<BatchOperation> operations) {
+        return withAllLocks(() -> super.applyBatch(operations));
+    }
+
+    // Источник читается и разбирается до взятия блокировок: под ними идут только проверки и применение.
+    @Override
+    public List<Task> importTasks(Stream<? extends Task> tasks) {
+        List<? extends Task> parsed = tasks.toList();
+        return withAllLocks(() -> super.importTasks(parsed.stream()));
+    }
+
+    @Override
+    public List<Task> getHistory() {
+        return snapshotEpics(withHistory(historyManager::getHistory));
+    }
+
+    @Override
+    public List<Task> getHistory(int limit) {
+        return snapshotEpics(withHistory(() -> historyManager.getHistory(limit)));
+    }
+
+    @Override
+    public List<Task> getPrioritizedTasks() {
+        return withScheduleRead(super::getPrioritizedTasks);
+    }
+
+    @Override
+    public List<Task> getPrioritizedTasks(Instant from, Instant to, int limit) {
+        return withScheduleRead(() -> super.getPrioritizedTasks(from, to, limit));
+    }
+
+    @Override
+    public List<Task> getNextPrioritizedTasks(Instant from, int limit) {
+        return withScheduleRead(() -> super.getNextPrioritizedTasks(from, limit));
+    }
+
+    @Override
+    protected int generateId() {
+        return idGenerator.getAndIncrement();
+    }
+
+    @Override
+    protected int reserveIds(int count) {
+        return idGenerator.getAndAdd(count);
+    }
+
+    @Override
+    protected void forgetViews(Collection<Integer> ids) {
+        withHistory(() -> {
+            historyManager.removeAll(ids);
+            return null;
+        });
+    }
+
+    // Удаление убирает задачу из хранилища, а затем из истории. Просмотр, прочитавший задачу до удаления,
+    // может добавить её в историю уже после этого, поэтому после добавления хранилище проверяется ещё раз.
+    private <T extends Task> T recordView(Map<Integer, T> storage, int id) {
+        T task = storage.get(id);
+        if (task == null) {
+            throw new NoSuchElementException(String.format("Задачи с id=%s не существует.", id));
+        }
+        withHistory(() -> {
+            historyManager.add(task);
+            if (!storage.containsKey(id)) {
+                historyManager.remove(id);
+            }
+            return null;
+        });
+        return task;
+    }
+
+    private EpicTask snapshotOf(EpicTask epic) {
+        return withStripe(epic.getId(), epic::snapshot);
+    }
+
+    private List<Task> snapshotEpics(List<Task> tasks) {
+        return tasks.stream().map(task -> task instanceof EpicTask epic ? snapshotOf(epic) : task).toList();
+    }
+
+    private <T> T withHistory(Supplier<T> action) {
+        if (historyLock == null) {
+            return action.get();
+        }
+        synchronized (historyLock) {
+            return action.get();
+        }
+    }
+
+    private boolean touchesSchedule(Task updated, Task existing) {
+        return updated != null && canPrioritized(updated)
+                || existing != null && prioritizedIndex.contains(existing);
+    }
+
+    private <T> T withStripe(int key, Supplier<T> action) {
+        Lock lock = stripes[Math.floorMod(key, LOCK_STRIPES)];
+        lock.lock();
+        try {
+            return action.get();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private <T> T withScheduleRead(Supplier<T> action) {
+        scheduleLock.readLock().lock();
+        try {
+            return action.get();
+        } finally {
+            scheduleLock.readLock().unlock();
+        }
+    }
+
+    private <T> T withSchedule(Supplier<T> action) {
+        scheduleLock.writeLock().lock();
+        try {
+            return action.get();
+        } finally {
+            scheduleLock.writeLock().unlock();
+        }
+    }
+
+    private void withAllLocks(Runnable action) {
+        withAllLocks(() -> {
+            action.run();
+            return null;
+        });
+    }
+
+    private <T> T withAllLocks(Supplier<T> action) {
+        for (Lock stripe : stripes) {
+            stripe.lock();
+        }
+        try {
+            return withSchedule(action);
+        } finally {
+            for (int i = stripes.length - 1; i >= 0; i--) {
+                stripes[i].unlock();
+            }
+        }
+    }
+}
@@ -0,0 +1,166 @@
+package ru.keeponthewave.tasktracker.managers;
+
+import ru.keeponthewave.tasktracker.exceptions.FileManagerRestoreException;
+import ru.keeponthewave.tasktracker.model.Task;
+import ru.keeponthewave.tasktracker.model.TaskCsvCodec;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.charset.CharacterCodingException;
+import java.nio.charset.CharsetDecoder;
+import java.nio.charset.CoderResult;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.InputMismatchException;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.stream.IntStream;
+
+class CsvSnapshotFormat implements SnapshotFormat {
+    // Номер покрытого сегмента дописывается к строке заголовка, которую читатели пропускают целиком.
+    private static final String COVERED_SEGMENT_MARK = ";segment=";
+
+    @Override
+    public void write(FileChannel channel,
+                      long coveredSegment,
+                      Collection<? extends Task> tasks,
+                      Collection<? extends Task> epics,
+                      Collection<? extends Task> subTasks) throws IOException {
+        var writer = new BufferedWriter(Channels.newWriter(channel, StandardCharsets.UTF_8));
+        writer.write(Task.SERIALIZATION_FORMAT);
+        if (coveredSegment > 0) {
+            writer.write(COVERED_SEGMENT_MARK + coveredSegment);
+        }
+        writer.newLine();
+
+        var line = new StringBuilder(128);
+        for (var group : List.of(tasks, epics, subTasks)) {
+            for (var task : group) {
+                line.setLength(0);
+                TaskCsvCodec.append(line, task).append(System.lineSeparator());
+                writer.append(line);
+            }
+        }
+        writer.flush();
+    }
+
+    private static final int MIN_CHUNK_SIZE = 64 * 1024;
+
+    private record Chunk(int start, int end) {
+    }
+
+    // Файл отображается в память и режется на куски по границам строк. Куски разбираются параллельно,
+    // каждая строка декодируется в переиспользуемый CharBuffer, который кодек читает без копирования в String.
+    @Override
+    public List<Task> read(Path file) throws IOException {
+        ByteBuffer bytes = SnapshotFormat.map(file);
+        int bodyStart = Math.min(lineEnd(bytes, 0) + 1, bytes.limit());
+        List<Chunk> chunks = split(bytes, bodyStart);
+
+        int[] firstLines = new int[chunks.size()];
+        int[] lineCounts = chunks.parallelStream().mapToInt(chunk -> countLines(bytes, chunk)).toArray();
+        for (int i = 0, line = 2; i < chunks.size(); line += lineCounts[i], i++) {
+            firstLines[i] = line;
+        }
+
+        return SnapshotFormat.concat(IntStream.range(0, chunks.size())
+                .parallel()
+                .mapToObj(i -> decodeChunk(bytes, chunks.get(i), firstLines[i], file))
+                .toList());
+    }
+
+    @Override
+    public long readCoveredSegment(Path file) throws IOException {
+        String header;
+        try (var reader = Files.newBufferedReader(file, StandardCharsets.UTF_8)) {
+            header = reader.readLine();
+        }
+        int mark = header == null ? -1 : header.lastIndexOf(COVERED_SEGMENT_MARK);
+        if (mark < 0) {
+            return 0;
+        }
+        try {
+            return Long.parseLong(header.substring(mark + COVERED_SEGMENT_MARK.length()).strip());
+        } catch (NumberFormatException e) {
+            throw new FileManagerRestoreException("Ошибка при восстановлении из файла: Повреждён заголовок", 1, file);
+        }
+    }
+
+    @Override
+    public int recordNumber(int index) {
+        return index + 2;
+    }
+
+    private static List<Chunk> split(ByteBuffer bytes, int bodyStart) {
+        int parallelism = ForkJoinPool.getCommonPoolParallelism();
+        int chunkSize = Math.max(MIN_CHUNK_SIZE, (bytes.limit() - bodyStart) / (parallelism * 4 + 1));
+        var chunks = new ArrayList<Chunk>();
+        for (int start = bodyStart; start < bytes.limit(); ) {
+            int end = Math.min(lineEnd(bytes, Math.min(start + chunkSize, bytes.limit() - 1)) + 1, bytes.limit());
+            chunks.add(new Chunk(start, end));
+            start = end;
+        }
+        return chunks;
+    }
+
+    private static int lineEnd(ByteBuffer bytes, int from) {
+        int i = from;
+        while (i < bytes.limit() && bytes.get(i) != '\n') {
+            i++;
+        }
+        return i;
+    }
+
+    private static int countLines(ByteBuffer bytes, Chunk chunk) {
+        int lines = 0;
+        for (int i = chunk.start(); i < chunk.end(); i++) {
+            if (bytes.get(i) == '\n') {
+                lines++;
+            }
+        }
+        return bytes.get(chunk.end() - 1) == '\n' ? lines : lines + 1;
+    }
+
+    private static List<Task> decodeChunk(ByteBuffer bytes, Chunk chunk, int firstLine, Path file) {
+        CharsetDecoder decoder = StandardCharsets.UTF_8.newDecoder();
+        CharBuffer line = CharBuffer.allocate(256);
+        var records = new ArrayList<Task>();
+
+        int lineNum = firstLine;
+        for (int start = chunk.start(); start < chunk.end(); lineNum++) {
+            int end = Math.min(lineEnd(bytes, start), chunk.end());
+            int contentEnd = end > start && bytes.get(end - 1) == '\r' ? end - 1 : end;
+            try {
+                line = decodeLine(decoder, bytes.slice(start, contentEnd - start), line);
+                records.add(TaskCsvCodec.decode(line));
+            } catch (IllegalArgumentException | InputMismatchException | CharacterCodingException e) {
+                throw new FileManagerRestoreException("Ошибка при восстановлении из файла: " + e.getMessage(),
+                        lineNum, file);
+            }
+            start = end + 1;
+        }
+        return records;
+    }
+
+    private static CharBuffer decodeLine(CharsetDecoder decoder, ByteBuffer bytes, CharBuffer out)
+            throws CharacterCodingException {
+        if (out.capacity() < bytes.remaining()) {
+            out = CharBuffer.allocate(bytes.remaining());
+        }
+        out.clear();
+        decoder.reset();
+        CoderResult result = decoder.decode(bytes, out, true);
+        if (result.isError()) {
+            result.throwException();
+        }
+        decoder.flush(out);
+        return out.flip();
+    }
+}
@@ -0,0 +1,58 @@
+package ru.keeponthewave.tasktracker.managers;
+
+import java.time.Duration;
+import java.util.Objects;
+
+/**
+ * Гарантия сохранности изменения к моменту, когда метод {@code FileBackedTaskManager} вернул управление.
+ * <ul>
+ *     <li>{@link Mode#SYNC} - запись и fsync выполняются для каждой операции до ответа: подтверждённое
+ *     изменение переживает падение процесса и ОС.</li>
+ *     <li>{@link Mode#GROUP} - операции, пришедшие в течение {@code window} (но не больше {@code maxBatch}),
+ *     записываются одним write+fsync и подтверждаются вместе. Гарантия та же, что у {@code SYNC},
+ *     но ответ может задержаться на величину окна.</li>
+ *     <li>{@link Mode#ASYNC} - операция подтверждается сразу, фоновый поток сбрасывает журнал на диск
+ *     раз в {@code window}. При падении теряются изменения последнего окна.</li>
+ * </ul>
+ * В режиме {@link PersistenceMode#SNAPSHOT} журнала нет и группировать нечего: снимок, который пишется
+ * на каждое изменение, сбрасывается через fsync только при {@code SYNC}. {@code GROUP} (политика по
+ * умолчанию) там означает запись без fsync, как и {@code ASYNC}. В режиме {@link PersistenceMode#JOURNAL}
+ * фоновые снимки, после которых удаляются сегменты журнала, сбрасываются при {@code SYNC} и {@code GROUP}.
+ */
+public record DurabilityPolicy(Mode mode, Duration window, int maxBatch) {
+    public enum Mode {
+        SYNC,
+        GROUP,
+        ASYNC
+    }
+
+    public DurabilityPolicy {
+        Objects.requireNonNull(mode);
+        Objects.requireNonNull(window);
+        if (window.isNegative()) {
+            throw new IllegalArgumentException("Окно сброса журнала не может быть отрицательным");
+        }
+        if (maxBatch < 1) {
+            throw new IllegalArgumentException("Размер группы должен быть положительным");
+        }
+        if (mode == Mode.ASYNC && window.isZero()) {
+            throw new IllegalArgumentException("Для ASYNC нужен положительный интервал сброса");
+        }
+    }
+
+    public static DurabilityPolicy sync() {
+        return new DurabilityPolicy(Mode.SYNC, Duration.ZERO, 1);
+    }
+
+    public static DurabilityPolicy group(Duration window, int maxBatch) {
+        return new DurabilityPolicy(Mode.GROUP, window, maxBatch);
+    }
+
+    public static DurabilityPolicy async(Duration flushInterval) {
+        return new DurabilityPolicy(Mode.ASYNC, flushInterval, Integer.MAX_VALUE);
+    }
+
+    public boolean forcesSnapshots(PersistenceMode persistenceMode) {
+        return mode == Mode.SYNC || mode == Mode.GROUP && persistenceMode == PersistenceMode.JOURNAL;
+    }
+}
@@ -2,188 +2,623 @@ package ru.keeponthewave.tasktracker.managers;
 
 import ru.keeponthewave.tasktracker.exceptions.FileManagerRestoreException;
 import ru.keeponthewave.tasktracker.exceptions.FileManagerSaveException;
-import ru.keeponthewave.tasktracker.exceptions.TimeIntersectionException;
 import ru.keeponthewave.tasktracker.model.EpicTask;
 import ru.keeponthewave.tasktracker.model.SubTask;
 import ru.keeponthewave.tasktracker.model.Task;
 import ru.keeponthewave.tasktracker.model.TaskType;
 import ru.keeponthewave.tasktracker.http.ioc.InjectValue;
 
-import java.io.BufferedWriter;
+import java.io.Closeable;
 import java.io.File;
 import java.io.IOException;
+import java.nio.channels.FileChannel;
 import java.nio.file.Files;
 import java.nio.file.Path;
-import java.util.Map;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.Function;
+import java.util.function.Supplier;
+import java.util.stream.Stream;
+
+public class FileBackedTaskManager extends InMemoryTaskManager implements Closeable {
+    private static final Duration SNAPSHOT_SHUTDOWN_TIMEOUT = Duration.ofSeconds(30);
 
-public class FileBackedTaskManager extends InMemoryTaskManager {
     private final Path file;
+    private final PersistenceMode persistenceMode;
+    private final SnapshotPolicy snapshotPolicy;
+    private final DurabilityPolicy durabilityPolicy;
+    private final StorageFormat storageFormat;
+    private final TaskJournal journal;
+
+    private final AtomicBoolean snapshotInProgress = new AtomicBoolean();
+    private volatile boolean snapshotRequested;
+    private ScheduledExecutorService snapshotExecutor;
+    private long lastSegment;
+    // Записи операций применяемого пакета; пишутся одним куском после применения всего пакета.
+    private List<JournalRecord> batchRecords;
 
     public FileBackedTaskManager(HistoryManager historyManager, @InjectValue(token = "backedTaskManagerPath") Path file) {
+        this(historyManager, file, FileStorageOptions.defaults());
+    }
+
+    public FileBackedTaskManager(HistoryManager historyManager, Path file, PersistenceMode persistenceMode) {
+        this(historyManager, file, FileStorageOptions.of(persistenceMode));
+    }
+
+    public FileBackedTaskManager(HistoryManager historyManager, Path file, FileStorageOptions options) {
         super(historyManager);
         this.file = file;
+        this.persistenceMode = options.persistenceMode();
+        this.snapshotPolicy = options.snapshotPolicy();
+        this.durabilityPolicy = options.durabilityPolicy();
+        this.storageFormat = options.storageFormat();
+        this.journal = new TaskJournal(journalPath(file), durabilityPolicy);
+
+        if (persistenceMode == PersistenceMode.JOURNAL && snapshotPolicy.hasInterval()) {
+            long interval = snapshotPolicy.interval().toMillis();
+            snapshotExecutor().scheduleAtFixedRate(() -> snapshotRequested = true, interval, interval,
+                    TimeUnit.MILLISECONDS);
+        }
     }
 
     public static FileBackedTaskManager loadFromFile(File file) {
+        return loadFromFile(file, FileStorageOptions.defaults());
+    }
+
+    public static FileBackedTaskManager loadFromFile(File file, PersistenceMode persistenceMode) {
+        return loadFromFile(file, FileStorageOptions.of(persistenceMode));
+    }
+
+    public static FileBackedTaskManager loadFromFile(File file, FileStorageOptions options) {
         Path filePath = file.toPath();
-        var fileBackedTaskManager = new FileBackedTaskManager(Managers.getDefaultHistory(), filePath);
+        var fileBackedTaskManager = new FileBackedTaskManager(Managers.getDefaultHistory(), filePath, options);
+        List<Path> segments = fileBackedTaskManager.journalSegments();
+        boolean hasJournal = !segments.isEmpty() || Files.exists(fileBackedTaskManager.journal.getPath());
 
-        int lineNum = 1;
-        int maxId = Integer.MIN_VALUE;
+        long coveredSegment = 0;
+        if (Files.exists(filePath) || !hasJournal) {
+            coveredSegment = fileBackedTaskManager.restoreSnapshot();
+        }
+        // Сегменты остаются на диске, если процесс остановился между записью снимка и их удалением.
+        // Воспроизведение не идемпотентно (подзадача требует эпика, удалённого позже), поэтому сегменты,
+        // уже вошедшие в снимок, пропускаются по номеру, сохранённому в самом снимке.
+        for (Path segment : segments) {
+            if (segmentNumber(segment) > coveredSegment) {
+                new TaskJournal(segment).replay(fileBackedTaskManager::applyJournalRecord);
+            }
+        }
+        fileBackedTaskManager.journal.replay(fileBackedTaskManager::applyJournalRecord);
+        fileBackedTaskManager.lastSegment = segments.isEmpty()
+                ? coveredSegment
+                : Math.max(coveredSegment, segmentNumber(segments.getLast()));
 
-        try (var bufferedReader = Files.newBufferedReader(filePath)) {
-            while (bufferedReader.ready()) {
-                var line = bufferedReader.readLine();
-                if (lineNum == 1) {
-                    lineNum++;
-                    continue;
-                }
+        if (options.persistenceMode() == PersistenceMode.JOURNAL) {
+            fileBackedTaskManager.journal.open(false);
+        } else if (hasJournal) {
+            fileBackedTaskManager.saveCoveringJournal();
+        }
+        return fileBackedTaskManager;
+    }
 
-                TaskType taskType = TaskType.valueOf(line.split(",")[1]);
+    private long restoreSnapshot() {
+        SnapshotFormat format;
+        List<Task> tasks;
+        long coveredSegment;
+        try {
+            format = StorageFormat.detect(file).format();
+            tasks = format.read(file);
+            coveredSegment = format.readCoveredSegment(file);
+        } catch (IOException e) {
+            throw new FileManagerRestoreException("Ошибка при восстановлении из файла: " + e.getMessage(), 0, file);
+        }
+        restoreAll(tasks, format);
+        return coveredSegment;
+    }
 
-                if (taskType == TaskType.TASK) {
-                    Task task = Task.fromString(line);
-                    if (task.getId() > maxId) {
-                        maxId = task.getId();
-                    }
-                    if (fileBackedTaskManager.canPrioritized(task)) {
-                        if (fileBackedTaskManager.hasTimeIntersection(task, fileBackedTaskManager.prioritizedTaskSet.stream())) {
-                            throw new TimeIntersectionException("На заданное время уже запланирована задача.");
-                        }
-                        fileBackedTaskManager.prioritizedTaskSet.add(task);
-                    }
-                    fileBackedTaskManager.taskMap.put(task.getId(), task);
-                } else if (taskType == TaskType.EPIC) {
-                    EpicTask epic = EpicTask.fromString(line);
-                    if (epic.getId() > maxId) {
-                        maxId = epic.getId();
-                    }
-                    fileBackedTaskManager.epicTaskMap.put(epic.getId(), epic);
-                } else if (taskType == TaskType.SUBTASK) {
-                    SubTask subTask = SubTask.fromString(line);
-                    if (subTask.getId() > maxId) {
-                        maxId = subTask.getId();
-                    }
-                    var epic = fileBackedTaskManager.epicTaskMap.get(subTask.getEpicTaskId());
-                    if (epic == null) {
-                        throw new FileManagerRestoreException(
-                                "Ошибка при восстановлении из файла: Эпика не существует",
-                                lineNum,
-                                filePath);
-                    }
-                    if (fileBackedTaskManager.canPrioritized(subTask)) {
-                        if (fileBackedTaskManager.hasTimeIntersection(subTask, fileBackedTaskManager.prioritizedTaskSet.stream())) {
-                            throw new TimeIntersectionException("На заданное время уже запланирована задача.");
-                        }
-                        fileBackedTaskManager.prioritizedTaskSet.add(subTask);
+    // Снимок восстанавливается целиком: сначала карты, затем подзадачи привязываются к эпикам (агрегаты
+    // каждого эпика считаются один раз), а пересечения по времени проверяются одним проходом по
+    // отсортированным задачам.
+    private void restoreAll(List<Task> tasks, SnapshotFormat format) {
+        for (var task : tasks) {
+            trackRestoredId(task);
+            switch (task.getType()) {
+                case TASK -> taskMap.put(task.getId(), task);
+                case EPIC -> epicTaskMap.put(task.getId(), (EpicTask) task);
+                case SUBTASK -> subTaskMap.put(task.getId(), (SubTask) task);
+            }
+        }
+
+        var subTasksByEpic = new HashMap<Integer, List<SubTask>>();
+        for (var subTask : subTaskMap.values()) {
+            if (!epicTaskMap.containsKey(subTask.getEpicTaskId())) {
+                throw new FileManagerRestoreException(
+                        "Ошибка при восстановлении из файла: Эпика не существует",
+                        recordNumber(tasks, subTask, format),
+                        file);
+            }
+            subTasksByEpic.computeIfAbsent(subTask.getEpicTaskId(), id -> new ArrayList<>()).add(subTask);
+        }
+        subTasksByEpic.forEach((epicId, subTasks) -> epicTaskMap.get(epicId).addSubtasks(subTasks));
+
+        var scheduled = new ArrayList<Task>();
+        for (var task : taskMap.values()) {
+            if (canPrioritized(task)) {
+                scheduled.add(task);
+            }
+        }
+        for (var subTask : subTaskMap.values()) {
+            if (canPrioritized(subTask)) {
+                scheduled.add(subTask);
+            }
+        }
+        Task[] sorted = scheduled.toArray(Task[]::new);
+        Arrays.parallelSort(sorted, PrioritizedTaskIndex.START_ORDER);
+
+        Instant maxEnd = null;
+        for (Task task : sorted) {
+            if (maxEnd != null && !maxEnd.isBefore(task.getStartTime())) {
+                throw new FileManagerRestoreException(
+                        "Ошибка при восстановлении из файла: На заданное время уже запланирована задача.",
+                        recordNumber(tasks, task, format),
+                        file);
+            }
+            Instant end = task.getEndTime();
+            if (maxEnd == null || end.isAfter(maxEnd)) {
+                maxEnd = end;
+            }
+        }
+        prioritizedIndex.loadSorted(Arrays.asList(sorted));
+    }
+
+    private static int recordNumber(List<Task> tasks, Task task, SnapshotFormat format) {
+        for (int i = tasks.size() - 1; i >= 0; i--) {
+            if (tasks.get(i) == task) {
+                return format.recordNumber(i);
+            }
+        }
+        return 0;
+    }
+
+    // Записи журнала уже прошли проверки при исполнении, поэтому применяются как есть и идемпотентно:
+    // промежуточное состояние при воспроизведении может временно не соответствовать инвариантам.
+    private void applyJournalRecord(JournalRecord record) {
+        switch (record.operation()) {
+            case CREATE, UPDATE -> upsert(record.task());
+            case DELETE -> discard(record.type(), record.id());
+            case DELETE_ALL -> discardAll(record.type());
+        }
+    }
+
+    private void upsert(Task task) {
+        trackRestoredId(task);
+        if (task instanceof SubTask subTask) {
+            var epic = epicTaskMap.get(subTask.getEpicTaskId());
+            if (epic == null) {
+                throw new NoSuchElementException("Эпика с id=" + subTask.getEpicTaskId() + " не существует");
+            }
+            prioritizedIndex.remove(subTask.getId());
+            if (canPrioritized(subTask)) {
+                prioritizedIndex.add(subTask);
+            }
+            if (subTaskMap.put(subTask.getId(), subTask) == null) {
+                epic.addSubtask(subTask);
+            } else {
+                epic.updateSubtask(subTask);
+            }
+        } else if (task instanceof EpicTask epic) {
+            var existing = epicTaskMap.get(epic.getId());
+            if (existing == null) {
+                epicTaskMap.put(epic.getId(), epic);
+            } else {
+                existing.setName(epic.getName());
+                existing.setDescription(epic.getDescription());
+            }
+        } else {
+            prioritizedIndex.remove(task.getId());
+            if (canPrioritized(task)) {
+                prioritizedIndex.add(task);
+            }
+            taskMap.put(task.getId(), task);
+        }
+    }
+
+    private void discard(TaskType type, int id) {
+        switch (type) {
+            case TASK -> {
+                prioritizedIndex.remove(id);
+                taskMap.remove(id);
+            }
+            case SUBTASK -> {
+                var subTask = subTaskMap.remove(id);
+                prioritizedIndex.remove(id);
+                if (subTask != null && epicTaskMap.containsKey(subTask.getEpicTaskId())) {
+                    epicTaskMap.get(subTask.getEpicTaskId()).removeSubtask(id);
+                }
+            }
+            case EPIC -> {
+                var epic = epicTaskMap.remove(id);
+                if (epic != null) {
+                    for (Integer subTaskId : new ArrayList<>(epic.getSubtaskIds())) {
+                        prioritizedIndex.remove(subTaskId);
+                        subTaskMap.remove(subTaskId);
                     }
-                    fileBackedTaskManager.subTaskMap.put(subTask.getId(), subTask);
-                    epic.getSubtaskIds().add(subTask.getId());
-                    fileBackedTaskManager.recalculateEpicFields(epic);
-                } else {
-                    throw new IOException("Неверный тип задачи");
                 }
-                lineNum++;
             }
-        } catch (IOException | ArrayIndexOutOfBoundsException | TimeIntersectionException e) {
-            throw new FileManagerRestoreException(
-                    "Ошибка при восстановлении из файла: " + e.getMessage(),
-                    lineNum,
-                    filePath);
         }
-        fileBackedTaskManager.idCounter = ++maxId;
-        return fileBackedTaskManager;
+    }
+
+    private void discardAll(TaskType type) {
+        switch (type) {
+            case TASK -> super.deleteAllTasks();
+            case SUBTASK -> super.deleteAllSubTasks();
+            case EPIC -> super.deleteAllEpicTasks();
+        }
+    }
+
+    private void trackRestoredId(Task task) {
+        if (task.getId() >= idCounter) {
+            idCounter = task.getId() + 1;
+        }
+    }
+
+    @Override
+    public synchronized Collection<Task> getAllTasks() {
+        return List.copyOf(super.getAllTasks());
+    }
+
+    @Override
+    public synchronized Page<Task> getTasksPage(Integer afterId, int limit) {
+        return super.getTasksPage(afterId, limit);
+    }
+
+    @Override
+    public synchronized Task getTaskById(int id) {
+        return super.getTaskById(id);
     }
 
     @Override
     public Task createTask(Task task) {
-        var createdTask = super.createTask(task);
-        save();
-        return createdTask;
+        return commit(() -> super.createTask(task), JournalRecord::created);
     }
 
     @Override
     public Task updateTask(Task task) {
-        var updTask = super.updateTask(task);
-        save();
-        return updTask;
+        return commit(() -> super.updateTask(task), JournalRecord::updated);
     }
 
     @Override
     public Task deleteTaskById(int id) {
-        Task task = super.deleteTaskById(id);
-        save();
-        return task;
+        return commit(() -> super.deleteTaskById(id), deleted -> JournalRecord.deleted(TaskType.TASK, id));
     }
 
     @Override
     public void deleteAllTasks() {
-        super.deleteAllTasks();
-        save();
+        commit(() -> {
+            super.deleteAllTasks();
+            return null;
+        }, ignored -> JournalRecord.deletedAll(TaskType.TASK));
+    }
+
+    @Override
+    public synchronized Collection<SubTask> getAllSubTasks() {
+        return List.copyOf(super.getAllSubTasks());
+    }
+
+    @Override
+    public synchronized Page<SubTask> getSubTasksPage(Integer afterId, int limit) {
+        return super.getSubTasksPage(afterId, limit);
+    }
+
+    @Override
+    public synchronized SubTask getSubTaskById(int id) {
+        return super.getSubTaskById(id);
     }
 
     @Override
     public SubTask createSubTask(SubTask task) {
-        var createdTask = super.createSubTask(task);
-        save();
-        return createdTask;
+        return commit(() -> super.createSubTask(task), JournalRecord::created);
     }
 
     @Override
     public SubTask updateSubTask(SubTask task) {
-        var updTask = super.updateSubTask(task);
-        save();
-        return updTask;
+        return commit(() -> super.updateSubTask(task), JournalRecord::updated);
     }
 
     @Override
     public SubTask deleteSubTaskById(int id) {
-        SubTask deletedSubTask = super.deleteSubTaskById(id);
-        save();
-        return deletedSubTask;
+        return commit(() -> super.deleteSubTaskById(id), deleted -> JournalRecord.deleted(TaskType.SUBTASK, id));
     }
 
     @Override
     public void deleteAllSubTasks() {
-        super.deleteAllSubTasks();
-        save();
+        commit(() -> {
+            super.deleteAllSubTasks();
+            return null;
+        }, ignored -> JournalRecord.deletedAll(TaskType.SUBTASK));
+    }
+
+    @Override
+    public synchronized Collection<SubTask> getEpicSubTasks(EpicTask task) {
+        return super.getEpicSubTasks(task);
+    }
+
+    @Override
+    public synchronized Collection<EpicTask> getAllEpicTasks() {
+        return List.copyOf(super.getAllEpicTasks());
+    }
+
+    @Override
+    public synchronized Page<EpicTask> getEpicTasksPage(Integer afterId, int limit) {
+        return super.getEpicTasksPage(afterId, limit);
+    }
+
+    @Override
+    public synchronized EpicTask getEpicTaskById(int id) {
+        return super.getEpicTaskById(id);
     }
 
     @Override
     public EpicTask createEpicTask(EpicTask task) {
-        var createdTask = super.createEpicTask(task);
-        save();
-        return createdTask;
+        return commit(() -> super.createEpicTask(task), JournalRecord::created);
     }
 
     @Override
     public EpicTask updateEpicTask(EpicTask task) {
-        var updTask = super.updateEpicTask(task);
-        save();
-        return updTask;
+        return commit(() -> super.updateEpicTask(task), JournalRecord::updated);
     }
 
     @Override
     public EpicTask deleteEpicTaskById(int id) {
-        EpicTask deletedTask = super.deleteEpicTaskById(id);
-        save();
-        return deletedTask;
+        return commit(() -> super.deleteEpicTaskById(id), deleted -> JournalRecord.deleted(TaskType.EPIC, id));
     }
 
     @Override
     public void deleteAllEpicTasks() {
-        super.deleteAllEpicTasks();
-        save();
+        commit(() -> {
+            super.deleteAllEpicTasks();
+            return null;
+        }, ignored -> JournalRecord.deletedAll(TaskType.EPIC));
+    }
+
+    @Override
+    public synchronized List<Task> getHistory() {
+        return super.getHistory();
+    }
+
+    @Override
+    public synchronized List<Task> getHistory(int limit) {
+        return super.getHistory(limit);
+    }
+
+    @Override
+    public synchronized List<Task> getPrioritizedTasks() {
+        return super.getPrioritizedTasks();
+    }
+
+    @Override
+    public synchronized List<Task> getPrioritizedTasks(Instant from, Instant to, int limit) {
+        return super.getPrioritizedTasks(from, to, limit);
+    }
+
+    @Override
+    public synchronized List<Task> getNextPrioritizedTasks(Instant from, int limit) {
+        return super.getNextPrioritizedTasks(from, limit);
+    }
+
+    // Изменение памяти и запись в журнал выполняются под монитором менеджера, а ожидание fsync - уже без
+    // него: пока один поток ждёт диска, другие успевают добавить свои записи в ту же группу.
+    private <T> T commit(Supplier<T> mutation, Function<T, JournalRecord> toRecord) {
+        T result;
+        long seq;
+        synchronized (this) {
+            result = mutation.get();
+            if (batchRecords != null) {
+                batchRecords.add(toRecord.apply(result));
+                return result;
+            }
+            seq = persist(List.of(toRecord.apply(result)));
+        }
+        if (seq > 0) {
+            journal.awaitDurable(seq);
+        }
+        return result;
+    }
+
+    @Override
+    public List<Task> applyBatch(List<BatchOperation> operations) {
+        List<Task> results;
+        long seq = 0;
+        synchronized (this) {
+            var records = new ArrayList<JournalRecord>(operations.size());
+            batchRecords = records;
+            try {
+                results = super.applyBatch(operations);
+            } finally {
+                batchRecords = null;
+            }
+            if (!records.isEmpty()) {
+                seq = persist(records);
+            }
+        }
+        if (seq > 0) {
+            journal.awaitDurable(seq);
+        }
+        return results;
+    }
+
+    // Импорт сохраняется одной записью: в режиме снимка - одним save(), в режиме журнала - одним пакетом
+    // журнала, после чего сразу запускается фоновое сжатие в снимок, чтобы не воспроизводить импорт
+    // при каждом запуске. Источник читается до входа в монитор.
+    @Override
+    public List<Task> importTasks(Stream<? extends Task> tasks) {
+        List<? extends Task> parsed = tasks.toList();
+        List<Task> imported;
+        long seq = 0;
+        synchronized (this) {
+            imported = super.importTasks(parsed.stream());
+            if (!imported.isEmpty()) {
+                List<JournalRecord> records = new ArrayList<>(imported.size());
+                for (var type : List.of(TaskType.EPIC, TaskType.TASK, TaskType.SUBTASK)) {
+                    for (var task : imported) {
+                        if (task.getType() == type) {
+                            records.add(JournalRecord.created(task));
+                        }
+                    }
+                }
+                long segmentBefore = lastSegment;
+                seq = persist(records);
+                // Если свёртка уже идёт, импорт в неё не попал — свернём журнал при следующей записи.
+                if (seq > 0 && lastSegment == segmentBefore && !startBackgroundSnapshot()) {
+                    snapshotRequested = true;
+                }
+            }
+        }
+        if (seq > 0) {
+            journal.awaitDurable(seq);
+        }
+        return imported;
+    }
+
+    @Override
+    public void close() {
+        if (snapshotExecutor != null) {
+            snapshotExecutor.shutdown();
+            try {
+                snapshotExecutor.awaitTermination(SNAPSHOT_SHUTDOWN_TIMEOUT.toMillis(), TimeUnit.MILLISECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+        journal.close();
+    }
+
+    private long persist(List<JournalRecord> records) {
+        if (persistenceMode == PersistenceMode.SNAPSHOT) {
+            save();
+            return 0;
+        }
+        if (!journal.isOpen()) {
+            saveCoveringJournal();
+            journal.open(true);
+            return 0;
+        }
+        long seq = journal.append(records);
+        if (snapshotRequested || snapshotPolicy.isExceeded(journal.size(), journal.records())) {
+            startBackgroundSnapshot();
+        }
+        return seq;
+    }
+
+    // Точка среза - только переключение журнала на новый файл, поток запроса больше ничего не копирует.
+    // Фоновый поток сам собирает состояние на момент среза: читает прежний снимок и воспроизводит
+    // закрытые сегменты до нового включительно. Заполненные сегменты удаляются только после того, как
+    // новый снимок атомарно заменил предыдущий.
+    private boolean startBackgroundSnapshot() {
+        if (!snapshotInProgress.compareAndSet(false, true)) {
+            return false;
+        }
+        snapshotRequested = false;
+
+        long segment;
+        try {
+            segment = lastSegment + 1;
+            journal.rotate(segmentPath(segment));
+            lastSegment = segment;
+        } catch (RuntimeException e) {
+            snapshotInProgress.set(false);
+            throw e;
+        }
+
+        snapshotExecutor().execute(() -> {
+            try {
+                compactUpTo(segment);
+                deleteSegments(segment);
+            } catch (RuntimeException e) {
+                System.out.println("Ошибка при фоновом сохранении снимка: " + e.getMessage());
+            } finally {
+                snapshotInProgress.set(false);
+            }
+        });
+        return true;
+    }
+
+    private void compactUpTo(long segment) {
+        var state = new FileBackedTaskManager(new InMemoryHistoryManager(), file,
+                FileStorageOptions.of(PersistenceMode.SNAPSHOT));
+        long coveredSegment = Files.exists(file) ? state.restoreSnapshot() : 0;
+        for (Path closed : journalSegments()) {
+            long number = segmentNumber(closed);
+            if (number > coveredSegment && number <= segment) {
+                new TaskJournal(closed).replay(state::applyJournalRecord);
+            }
+        }
+        writeSnapshot(file, storageFormat, segment, state.taskMap.values(), state.epicTaskMap.values(),
+                state.subTaskMap.values());
+    }
+
+    private synchronized ScheduledExecutorService snapshotExecutor() {
+        if (snapshotExecutor == null) {
+            snapshotExecutor = Executors.newSingleThreadScheduledExecutor(runnable -> {
+                var thread = new Thread(runnable, "snapshot-" + file.getFileName());
+                thread.setDaemon(true);
+                return thread;
+            });
+        }
+        return snapshotExecutor;
+    }
+
+    public synchronized void exportSnapshot(Path target, StorageFormat format) {
+        writeSnapshot(target, format, lastSegment, taskMap.values(), epicTaskMap.values(), subTaskMap.values());
     }
 
     private void save() {
-        try (var writer = Files.newBufferedWriter(file)) {
-            writer.write(Task.SERIALIZATION_FORMAT);
-            writer.newLine();
+        writeSnapshot(file, storageFormat, lastSegment, taskMap.values(), epicTaskMap.values(), subTaskMap.values());
+    }
+
+    // Журнал сначала становится сегментом, и снимок помечается как покрывающий его. Если процесс
+    // остановится до удаления сегментов, при восстановлении они будут пропущены, а не применены повторно.
+    private void saveCoveringJournal() {
+        if (Files.exists(journal.getPath())) {
+            try {
+                Files.move(journal.getPath(), segmentPath(lastSegment + 1), StandardCopyOption.ATOMIC_MOVE);
+            } catch (IOException e) {
+                throw new FileManagerSaveException("Ошибка при переносе журнала в сегмент: " + e.getMessage());
+            }
+            lastSegment++;
+        }
+        save();
+        deleteSegments(lastSegment);
+    }
 
-            writeTaskMap(taskMap, writer);
-            writeTaskMap(epicTaskMap, writer);
-            writeTaskMap(subTaskMap, writer);
+    private void writeSnapshot(Path target,
+                               StorageFormat format,
+                               long coveredSegment,
+                               Collection<? extends Task> tasks,
+                               Collection<? extends Task> epics,
+                               Collection<? extends Task> subTasks) {
+        Path tmp = target.resolveSibling(target.getFileName() + ".tmp");
+        try {
+            try (var channel = FileChannel.open(tmp, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                    StandardOpenOption.TRUNCATE_EXISTING)) {
+                format.format().write(channel, coveredSegment, tasks, epics, subTasks);
+                if (durabilityPolicy.forcesSnapshots(persistenceMode)) {
+                    channel.force(false);
+                }
+            }
+            Files.move(tmp, target, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
         } catch (IOException e) {
             String errorMessage = "Ошибка при сохранении в файл: " + e.getMessage();
             System.out.println(errorMessage);
@@ -191,10 +626,47 @@ public class FileBackedTaskManager extends InMemoryTaskManager {
         }
     }
 
-    private void writeTaskMap(Map<Integer, ? extends Task> taskMap, BufferedWriter writer) throws IOException {
-        for (var task : taskMap.values()) {
-            writer.write(task.toString());
-            writer.newLine();
+    private void deleteSegments(long upTo) {
+        for (Path segment : journalSegments()) {
+            if (segmentNumber(segment) > upTo) {
+                break;
+            }
+            try {
+                Files.deleteIfExists(segment);
+            } catch (IOException e) {
+                throw new FileManagerSaveException("Ошибка при удалении сегмента журнала: " + e.getMessage());
+            }
+        }
+    }
+
+    private List<Path> journalSegments() {
+        String prefix = journal.getPath().getFileName() + ".";
+        try (var paths = Files.list(file.toAbsolutePath().getParent())) {
+            return paths
+                    .filter(path -> {
+                        String name = path.getFileName().toString();
+                        return name.startsWith(prefix)
+                                && name.length() > prefix.length()
+                                && name.substring(prefix.length()).chars().allMatch(Character::isDigit);
+                    })
+                    .sorted(Comparator.comparingLong(FileBackedTaskManager::segmentNumber))
+                    .toList();
+        } catch (IOException e) {
+            throw new FileManagerRestoreException("Ошибка при поиске сегментов журнала: " + e.getMessage(), 0,
+                    journal.getPath());
         }
     }
+
+    private Path segmentPath(long segment) {
+        return journal.getPath().resolveSibling(journal.getPath().getFileName() + "." + segment);
+    }
+
+    private static long segmentNumber(Path segment) {
+        String name = segment.getFileName().toString();
+        return Long.parseLong(name.substring(name.lastIndexOf('.') + 1));
+    }
+
+    private static Path journalPath(Path file) {
+        return file.resolveSibling(file.getFileName() + ".journal");
+    }
 }
@@ -0,0 +1,38 @@
+package ru.keeponthewave.tasktracker.managers;
+
+import java.time.Duration;
+import java.util.Objects;
+
+public record FileStorageOptions(PersistenceMode persistenceMode,
+                                 SnapshotPolicy snapshotPolicy,
+                                 DurabilityPolicy durabilityPolicy,
+                                 StorageFormat storageFormat) {
+
+    public FileStorageOptions {
+        Objects.requireNonNull(persistenceMode);
+        Objects.requireNonNull(snapshotPolicy);
+        Objects.requireNonNull(durabilityPolicy);
+        Objects.requireNonNull(storageFormat);
+    }
+
+    public static FileStorageOptions defaults() {
+        return of(PersistenceMode.SNAPSHOT);
+    }
+
+    public static FileStorageOptions of(PersistenceMode persistenceMode) {
+        return new FileStorageOptions(persistenceMode, SnapshotPolicy.defaults(),
+                DurabilityPolicy.group(Duration.ZERO, 256), StorageFormat.CSV);
+    }
+
+    public FileStorageOptions withSnapshotPolicy(SnapshotPolicy snapshotPolicy) {
+        return new FileStorageOptions(persistenceMode, snapshotPolicy, durabilityPolicy, storageFormat);
+    }
+
+    public FileStorageOptions withDurabilityPolicy(DurabilityPolicy durabilityPolicy) {
+        return new FileStorageOptions(persistenceMode, snapshotPolicy, durabilityPolicy, storageFormat);
+    }
+
+    public FileStorageOptions withStorageFormat(StorageFormat storageFormat) {
+        return new FileStorageOptions(persistenceMode, snapshotPolicy, durabilityPolicy, storageFormat);
+    }
+}
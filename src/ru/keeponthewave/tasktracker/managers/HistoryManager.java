@@ -2,12 +2,28 @@ package ru.keeponthewave.tasktracker.managers;
 
 import ru.keeponthewave.tasktracker.model.Task;
 
+import java.util.Collection;
 import java.util.List;
 
 public interface HistoryManager {
     List<Task> getHistory();
 
+    List<Task> getHistory(int limit);
+
     void add(Task task);
 
     void remove(int id);
+
+    default void removeAll(Collection<Integer> ids) {
+        for (int id : ids) {
+            remove(id);
+        }
+    }
+
+    /**
+     * {@code true}, если реализация сама потокобезопасна и не требует внешней синхронизации.
+     */
+    default boolean isConcurrent() {
+        return false;
+    }
 }
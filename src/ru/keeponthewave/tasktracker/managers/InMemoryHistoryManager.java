@@ -1,12 +1,16 @@
 package ru.keeponthewave.tasktracker.managers;
 
+import ru.keeponthewave.tasktracker.http.ioc.InjectValue;
 import ru.keeponthewave.tasktracker.http.ioc.InjectableConstructor;
 import ru.keeponthewave.tasktracker.model.Task;
 
 import java.util.*;
 
 public class InMemoryHistoryManager implements HistoryManager {
+    public static final int DEFAULT_CAPACITY = 1000;
+
     private final Map<Integer, Node> nodeMap = new HashMap<>();
+    private final int capacity;
 
     private final Node tail = new Node();
     private final Node head = new Node();
@@ -28,15 +32,27 @@ public class InMemoryHistoryManager implements HistoryManager {
         }
     }
 
-    @InjectableConstructor
     public InMemoryHistoryManager() {
+        this(DEFAULT_CAPACITY);
+    }
+
+    /**
+     * @param capacity сколько последних просмотренных задач хранить; при переполнении вытесняется самая давняя.
+     *                 {@code null} - {@link #DEFAULT_CAPACITY}.
+     */
+    @InjectableConstructor
+    public InMemoryHistoryManager(@InjectValue(token = "historyCapacity", required = false) Integer capacity) {
+        if (capacity != null && capacity < 1) {
+            throw new IllegalArgumentException("Размер истории должен быть положительным: " + capacity);
+        }
+        this.capacity = capacity == null ? DEFAULT_CAPACITY : capacity;
         head.next = tail;
         tail.prev = head;
     }
 
     @Override
     public List<Task> getHistory() {
-        List<Task> resultList = new ArrayList<>();
+        List<Task> resultList = new ArrayList<>(nodeMap.size());
 
         for (var currentNode = head.next; currentNode != tail; currentNode = currentNode.next) {
             resultList.add(currentNode.value);
@@ -45,24 +61,42 @@ public class InMemoryHistoryManager implements HistoryManager {
         return resultList;
     }
 
+    @Override
+    public List<Task> getHistory(int limit) {
+        int count = Math.min(Math.max(limit, 0), nodeMap.size());
+        Task[] result = new Task[count];
+
+        var currentNode = tail.prev;
+        for (int i = count - 1; i >= 0; i--, currentNode = currentNode.prev) {
+            result[i] = currentNode.value;
+        }
+
+        return Arrays.asList(result);
+    }
+
     @Override
     public void remove(int id) {
-        if (!nodeMap.containsKey(id)) {
+        var currentNode = nodeMap.remove(id);
+        if (currentNode == null) {
             return;
         }
 
-        var currentNode = nodeMap.get(id);
         var nextNode = currentNode.next;
         var prevNode = currentNode.prev;
 
         nextNode.prev = prevNode;
         prevNode.next = nextNode;
-
-        nodeMap.remove(id);
     }
 
     @Override
     public void add(Task task) {
+        addEvicting(task);
+    }
+
+    /**
+     * Добавляет задачу и возвращает id задачи, вытесненной из-за переполнения, или {@code null}.
+     */
+    Integer addEvicting(Task task) {
         int id = task.getId();
 
         if (nodeMap.containsKey(id)) {
@@ -74,5 +108,12 @@ public class InMemoryHistoryManager implements HistoryManager {
         tail.prev = newNode;
 
         nodeMap.put(id, newNode);
+
+        if (nodeMap.size() > capacity) {
+            int evicted = head.next.value.getId();
+            remove(evicted);
+            return evicted;
+        }
+        return null;
     }
 }
@@ -1,31 +1,57 @@
 package ru.keeponthewave.tasktracker.managers;
 
+import ru.keeponthewave.tasktracker.exceptions.BatchRejectedException;
 import ru.keeponthewave.tasktracker.exceptions.TimeIntersectionException;
 import ru.keeponthewave.tasktracker.http.ioc.InjectableConstructor;
 import ru.keeponthewave.tasktracker.model.EpicTask;
 import ru.keeponthewave.tasktracker.model.SubTask;
 import ru.keeponthewave.tasktracker.model.Task;
 import ru.keeponthewave.tasktracker.model.TaskStatus;
+import ru.keeponthewave.tasktracker.model.TaskType;
 
 import java.time.Duration;
 import java.time.Instant;
 import java.util.*;
-import java.util.function.BiPredicate;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
 import java.util.stream.Stream;
 
 public class InMemoryTaskManager implements TaskManager {
-    protected final Map<Integer, Task> taskMap = new HashMap<>();
-    protected final Map<Integer, EpicTask> epicTaskMap = new HashMap<>();
-    protected final Map<Integer, SubTask> subTaskMap = new HashMap<>();
-    protected final Set<Task> prioritizedTaskSet = new TreeSet<>(Comparator.comparing(Task::getStartTime));
+    protected final NavigableMap<Integer, Task> taskMap;
+    protected final NavigableMap<Integer, EpicTask> epicTaskMap;
+    protected final NavigableMap<Integer, SubTask> subTaskMap;
+    protected final PrioritizedTaskIndex prioritizedIndex = new PrioritizedTaskIndex();
 
-    private final HistoryManager historyManager;
+    protected final HistoryManager historyManager;
+    private final List<TaskMutationListener> mutationListeners = new CopyOnWriteArrayList<>();
+    private final AtomicLong version = new AtomicLong();
+    private final AtomicLongArray typeVersions = new AtomicLongArray(TaskType.values().length);
+    private final AtomicLongArray typeModifiedAt = new AtomicLongArray(TaskType.values().length);
 
     protected Integer idCounter = 0;
 
+    private boolean epicFieldsVerification = false;
+    // Пока применяется проверенный пакет, пересечения уже исключены проверкой пакета целиком.
+    private boolean batchApplying = false;
+
     @InjectableConstructor
     public InMemoryTaskManager(HistoryManager historyManager) {
+        this(historyManager, new TreeMap<>(), new TreeMap<>(), new TreeMap<>());
+    }
+
+    protected InMemoryTaskManager(HistoryManager historyManager,
+                                  NavigableMap<Integer, Task> taskMap,
+                                  NavigableMap<Integer, EpicTask> epicTaskMap,
+                                  NavigableMap<Integer, SubTask> subTaskMap) {
         this.historyManager = historyManager;
+        this.taskMap = taskMap;
+        this.epicTaskMap = epicTaskMap;
+        this.subTaskMap = subTaskMap;
+        long now = System.currentTimeMillis();
+        for (int i = 0; i < typeModifiedAt.length(); i++) {
+            typeModifiedAt.set(i, now);
+        }
     }
 
     @Override
@@ -33,6 +59,11 @@ public class InMemoryTaskManager implements TaskManager {
         return taskMap.values();
     }
 
+    @Override
+    public Page<Task> getTasksPage(Integer afterId, int limit) {
+        return page(taskMap, afterId, limit);
+    }
+
     @Override
     public Task getTaskById(int id) {
         checkTaskExistsInStorage(id, taskMap);
@@ -45,12 +76,13 @@ public class InMemoryTaskManager implements TaskManager {
     public Task createTask(Task task) {
         task.setId(generateId());
         if (canPrioritized(task)) {
-            if (hasTimeIntersection(task, prioritizedTaskSet.stream())) {
+            if (hasTimeIntersection(task)) {
                 throw new TimeIntersectionException("Ошибка создания задачи: На заданное время уже запланирована задача.");
             }
-            prioritizedTaskSet.add(task);
+            prioritizedIndex.add(task);
         }
         taskMap.put(task.getId(), task);
+        fireMutation(TaskType.TASK, task.getId());
 
         return task;
     }
@@ -58,24 +90,17 @@ public class InMemoryTaskManager implements TaskManager {
     @Override
     public Task updateTask(Task task) {
         checkTaskExistsInStorage(task.getId(), taskMap);
-        if (
-                canPrioritized(task)
-                        && hasTimeIntersection(task,
-                        prioritizedTaskSet.stream().filter(pt -> !Objects.equals(pt.getId(), task.getId())))
-        ) {
+        if (canPrioritized(task) && hasTimeIntersection(task)) {
             throw new TimeIntersectionException("Ошибка обновления задачи: На заданное время уже запланирована задача.");
         }
 
-        var alreadyPrioritized = prioritizedTaskSet
-                .stream()
-                .filter(t -> Objects.equals(t.getId(), task.getId()))
-                .findFirst();
-        alreadyPrioritized.ifPresent(prioritizedTaskSet::remove);
+        prioritizedIndex.remove(task.getId());
 
         if (canPrioritized(task)) {
-            prioritizedTaskSet.add(task);
+            prioritizedIndex.add(task);
         }
         taskMap.put(task.getId(), task);
+        fireMutation(TaskType.TASK, task.getId());
         return task;
     }
 
@@ -83,19 +108,20 @@ public class InMemoryTaskManager implements TaskManager {
     public Task deleteTaskById(int id) {
         checkTaskExistsInStorage(id, taskMap);
 
-        var alreadyPrioritized = prioritizedTaskSet
-                .stream()
-                .filter(t -> Objects.equals(t.getId(), id))
-                .findFirst();
-        alreadyPrioritized.ifPresent(prioritizedTaskSet::remove);
+        prioritizedIndex.remove(id);
+        forgetViews(List.of(id));
 
-        return taskMap.remove(id);
+        var removed = taskMap.remove(id);
+        fireMutation(TaskType.TASK, id);
+        return removed;
     }
 
     @Override
     public void deleteAllTasks() {
-        taskMap.values().stream().filter(prioritizedTaskSet::contains).forEach(prioritizedTaskSet::remove);
+        prioritizedIndex.removeAll(taskMap.values());
+        forgetViews(taskMap.keySet());
         taskMap.clear();
+        fireMutation(TaskType.TASK, null);
     }
 
     @Override
@@ -103,6 +129,11 @@ public class InMemoryTaskManager implements TaskManager {
         return subTaskMap.values();
     }
 
+    @Override
+    public Page<SubTask> getSubTasksPage(Integer afterId, int limit) {
+        return page(subTaskMap, afterId, limit);
+    }
+
     @Override
     public SubTask getSubTaskById(int id) {
         checkTaskExistsInStorage(id, subTaskMap);
@@ -122,16 +153,18 @@ public class InMemoryTaskManager implements TaskManager {
         task.setId(generateId());
 
         if (canPrioritized(task)) {
-            if (hasTimeIntersection(task, prioritizedTaskSet.stream())) {
+            if (hasTimeIntersection(task)) {
                 throw new TimeIntersectionException("Ошибка создания задачи: На заданное время уже запланирована задача.");
             }
-            prioritizedTaskSet.add(task);
+            prioritizedIndex.add(task);
         }
         subTaskMap.put(task.getId(), task);
 
         var epic = epicTaskMap.get(task.getEpicTaskId());
-        epic.getSubtaskIds().add(task.getId());
-        recalculateEpicFields(epic);
+        epic.addSubtask(task);
+        verifyEpicFields(epic);
+        fireMutation(TaskType.SUBTASK, task.getId());
+        fireMutation(TaskType.EPIC, epic.getId());
 
         return task;
     }
@@ -144,28 +177,23 @@ public class InMemoryTaskManager implements TaskManager {
             throw new NoSuchElementException("Отсутвует подзадача", e);
         }
         task.setEpicTaskId(subTaskMap.get(task.getId()).getEpicTaskId());
-        subTaskMap.put(task.getId(), task);
 
-        if (
-                canPrioritized(task)
-                        && hasTimeIntersection(task,
-                        prioritizedTaskSet.stream().filter(pt -> !Objects.equals(pt.getId(), task.getId())))
-        ) {
+        if (canPrioritized(task) && hasTimeIntersection(task)) {
             throw new TimeIntersectionException("Ошибка обновления задачи: На заданное время уже запланирована задача.");
         }
+        subTaskMap.put(task.getId(), task);
 
-        var alreadyPrioritized = prioritizedTaskSet
-                .stream()
-                .filter(t -> Objects.equals(t.getId(), task.getId()))
-                .findFirst();
-        alreadyPrioritized.ifPresent(prioritizedTaskSet::remove);
+        prioritizedIndex.remove(task.getId());
 
         if (canPrioritized(task)) {
-            prioritizedTaskSet.add(task);
+            prioritizedIndex.add(task);
         }
 
         var epic = epicTaskMap.get(task.getEpicTaskId());
-        recalculateEpicFields(epic);
+        epic.updateSubtask(task);
+        verifyEpicFields(epic);
+        fireMutation(TaskType.SUBTASK, task.getId());
+        fireMutation(TaskType.EPIC, epic.getId());
 
         return task;
     }
@@ -175,34 +203,36 @@ public class InMemoryTaskManager implements TaskManager {
         checkTaskExistsInStorage(id, subTaskMap);
         var subTask = subTaskMap.remove(id);
 
-        var alreadyPrioritized = prioritizedTaskSet
-                .stream()
-                .filter(t -> Objects.equals(t.getId(), id))
-                .findFirst();
-        alreadyPrioritized.ifPresent(prioritizedTaskSet::remove);
+        prioritizedIndex.remove(id);
+        forgetViews(List.of(id));
 
         var epic = epicTaskMap.get(subTask.getEpicTaskId());
         if (epic != null) {
-            epic.getSubtaskIds()
-                    .remove((Integer) id);
-            recalculateEpicFields(epic);
+            epic.removeSubtask(id);
+            verifyEpicFields(epic);
+            fireMutation(TaskType.EPIC, epic.getId());
         }
+        fireMutation(TaskType.SUBTASK, id);
         return subTask;
     }
 
     @Override
     public void deleteAllSubTasks() {
-        subTaskMap.values().stream().filter(prioritizedTaskSet::contains).forEach(prioritizedTaskSet::remove);
+        prioritizedIndex.removeAll(subTaskMap.values());
+        forgetViews(subTaskMap.keySet());
         subTaskMap.values()
                 .stream()
                 .map(SubTask::getEpicTaskId)
                 .map(epicTaskMap::get)
                 .filter(Objects::nonNull)
+                .distinct()
                 .forEach(epicTask -> {
-                    epicTask.getSubtaskIds().clear();
-                    recalculateEpicFields(epicTask);
+                    epicTask.clearSubtasks();
+                    verifyEpicFields(epicTask);
                 });
         subTaskMap.clear();
+        fireMutation(TaskType.SUBTASK, null);
+        fireMutation(TaskType.EPIC, null);
     }
 
     @Override
@@ -219,6 +249,11 @@ public class InMemoryTaskManager implements TaskManager {
         return epicTaskMap.values();
     }
 
+    @Override
+    public Page<EpicTask> getEpicTasksPage(Integer afterId, int limit) {
+        return page(epicTaskMap, afterId, limit);
+    }
+
     @Override
     public EpicTask getEpicTaskById(int id) {
         checkTaskExistsInStorage(id, epicTaskMap);
@@ -231,6 +266,7 @@ public class InMemoryTaskManager implements TaskManager {
     public EpicTask createEpicTask(EpicTask task) {
         task.setId(generateId());
         epicTaskMap.put(task.getId(), task);
+        fireMutation(TaskType.EPIC, task.getId());
         return task;
     }
 
@@ -241,6 +277,7 @@ public class InMemoryTaskManager implements TaskManager {
         var existing = epicTaskMap.get(task.getId());
         existing.setDescription(task.getDescription());
         existing.setName(task.getName());
+        fireMutation(TaskType.EPIC, existing.getId());
 
         return existing;
     }
@@ -248,30 +285,290 @@ public class InMemoryTaskManager implements TaskManager {
     @Override
     public EpicTask deleteEpicTaskById(int id) {
         checkTaskExistsInStorage(id, epicTaskMap);
-        EpicTask existing = getEpicTaskById(id);
-        existing.getSubtaskIds()
-                .stream()
-                .filter(Objects::nonNull)
-                .forEach(subTaskMap::remove);
-
-        existing.getSubtaskIds()
-                .stream()
-                .map(subTaskMap::get)
-                .filter(prioritizedTaskSet::contains)
-                .forEach(prioritizedTaskSet::remove);
+        EpicTask existing = epicTaskMap.get(id);
+        List<Integer> removedIds = new ArrayList<>(existing.getSubtaskIds().size() + 1);
+        for (Integer subTaskId : existing.getSubtaskIds()) {
+            if (subTaskId != null) {
+                prioritizedIndex.remove(subTaskId);
+                subTaskMap.remove(subTaskId);
+                removedIds.add(subTaskId);
+            }
+        }
+        removedIds.add(id);
+        forgetViews(removedIds);
 
-        return epicTaskMap.remove(id);
+        var removed = epicTaskMap.remove(id);
+        for (int i = 0; i < removedIds.size() - 1; i++) {
+            fireMutation(TaskType.SUBTASK, removedIds.get(i));
+        }
+        fireMutation(TaskType.EPIC, id);
+        return removed;
     }
 
     @Override
     public void deleteAllEpicTasks() {
+        List<Integer> removedIds = new ArrayList<>(epicTaskMap.size() + subTaskMap.size());
+        removedIds.addAll(epicTaskMap.keySet());
+        removedIds.addAll(subTaskMap.keySet());
+        forgetViews(removedIds);
         epicTaskMap.clear();
 
-        subTaskMap.values()
-                .stream()
-                .filter(prioritizedTaskSet::contains)
-                .forEach(prioritizedTaskSet::remove);
+        prioritizedIndex.removeAll(subTaskMap.values());
         subTaskMap.clear();
+        fireMutation(TaskType.EPIC, null);
+        fireMutation(TaskType.SUBTASK, null);
+    }
+
+    @Override
+    public List<Task> applyBatch(List<BatchOperation> operations) {
+        validateBatch(operations);
+        List<Task> results = new ArrayList<>(operations.size());
+        batchApplying = true;
+        try {
+            for (var operation : operations) {
+                results.add(applyOperation(operation, results));
+            }
+        } finally {
+            batchApplying = false;
+        }
+        return results;
+    }
+
+    private Task applyOperation(BatchOperation operation, List<Task> results) {
+        return switch (operation.action()) {
+            case CREATE -> switch (operation.type()) {
+                case TASK -> createTask(operation.task());
+                case EPIC -> createEpicTask((EpicTask) operation.task());
+                case SUBTASK -> {
+                    var subTask = (SubTask) operation.task();
+                    if (operation.epicRef() != null) {
+                        subTask.setEpicTaskId(results.get(operation.epicRef()).getId());
+                    }
+                    yield createSubTask(subTask);
+                }
+            };
+            case UPDATE -> switch (operation.type()) {
+                case TASK -> updateTask(operation.task());
+                case EPIC -> updateEpicTask((EpicTask) operation.task());
+                case SUBTASK -> updateSubTask((SubTask) operation.task());
+            };
+            case DELETE -> switch (operation.type()) {
+                case TASK -> deleteTaskById(operation.id());
+                case EPIC -> deleteEpicTaskById(operation.id());
+                case SUBTASK -> deleteSubTaskById(operation.id());
+            };
+        };
+    }
+
+    private record ScheduleCandidate(int index, Integer id, Integer epicId, Instant start, Instant end) {
+    }
+
+    // Пакет проверяется на состоянии, которое получится после предыдущих операций пакета, но без изменения
+    // хранилища: удалённые пакетом id помечаются в overlay, а расписание собирается из освобождённых
+    // слотов и новых интервалов, которые сверяются и с индексом, и друг с другом.
+    private void validateBatch(List<BatchOperation> operations) {
+        Map<Integer, TaskType> overlay = new HashMap<>();
+        Set<Integer> released = new HashSet<>();
+        List<ScheduleCandidate> candidates = new ArrayList<>();
+
+        for (int i = 0; i < operations.size(); i++) {
+            var operation = operations.get(i);
+            try {
+                checkOperationShape(operation);
+                switch (operation.action()) {
+                    case CREATE -> {
+                        Integer epicId = null;
+                        if (operation.type() == TaskType.SUBTASK) {
+                            epicId = resolveBatchEpic(operations, i, overlay);
+                        }
+                        if (canPrioritized(operation.task())) {
+                            candidates.add(new ScheduleCandidate(i, null, epicId,
+                                    operation.task().getStartTime(), operation.task().getEndTime()));
+                        }
+                    }
+                    case UPDATE -> {
+                        int id = operation.task().getId();
+                        checkExistsInBatch(operation.type(), id, overlay);
+                        if (operation.type() != TaskType.EPIC) {
+                            released.add(id);
+                            candidates.removeIf(candidate -> Objects.equals(candidate.id(), id));
+                            if (canPrioritized(operation.task())) {
+                                candidates.add(new ScheduleCandidate(i, id, null,
+                                        operation.task().getStartTime(), operation.task().getEndTime()));
+                            }
+                        }
+                    }
+                    case DELETE -> {
+                        int id = operation.id();
+                        checkExistsInBatch(operation.type(), id, overlay);
+                        overlay.put(id, null);
+                        released.add(id);
+                        candidates.removeIf(candidate -> Objects.equals(candidate.id(), id));
+                        if (operation.type() == TaskType.EPIC) {
+                            for (Integer subTaskId : epicTaskMap.get(id).getSubtaskIds()) {
+                                overlay.put(subTaskId, null);
+                                released.add(subTaskId);
+                                candidates.removeIf(candidate -> Objects.equals(candidate.id(), subTaskId));
+                            }
+                            candidates.removeIf(candidate -> Objects.equals(candidate.epicId(), id));
+                        }
+                    }
+                }
+            } catch (RuntimeException e) {
+                throw new BatchRejectedException(i, e.getMessage(), e);
+            }
+        }
+
+        candidates.sort(Comparator.comparing(ScheduleCandidate::start).thenComparingInt(ScheduleCandidate::index));
+        Instant reachedEnd = null;
+        for (var candidate : candidates) {
+            if (reachedEnd != null && !reachedEnd.isBefore(candidate.start())
+                    || prioritizedIndex.hasIntersection(candidate.start(), candidate.end(), released)) {
+                var e = new TimeIntersectionException(
+                        "Ошибка применения пакета: На заданное время уже запланирована задача.");
+                throw new BatchRejectedException(candidate.index(), e.getMessage(), e);
+            }
+            reachedEnd = reachedEnd == null || candidate.end().isAfter(reachedEnd) ? candidate.end() : reachedEnd;
+        }
+    }
+
+    private static void checkOperationShape(BatchOperation operation) {
+        if (operation == null || operation.action() == null || operation.type() == null) {
+            throw new IllegalArgumentException("Не указаны действие или тип задачи");
+        }
+        if (operation.action() == BatchOperation.Action.DELETE) {
+            if (operation.id() == null) {
+                throw new IllegalArgumentException("Не указан id удаляемой задачи");
+            }
+            return;
+        }
+        var task = operation.task();
+        if (task == null || task.getType() != operation.type()) {
+            throw new IllegalArgumentException("Задача не передана или не соответствует типу " + operation.type());
+        }
+        if (operation.action() == BatchOperation.Action.UPDATE && task.getId() == null) {
+            throw new IllegalArgumentException("Не указан id обновляемой задачи");
+        }
+    }
+
+    private Integer resolveBatchEpic(List<BatchOperation> operations, int index, Map<Integer, TaskType> overlay) {
+        var epicRef = operations.get(index).epicRef();
+        if (epicRef == null) {
+            var epicId = ((SubTask) operations.get(index).task()).getEpicTaskId();
+            try {
+                checkExistsInBatch(TaskType.EPIC, epicId, overlay);
+            } catch (NoSuchElementException e) {
+                throw new NoSuchElementException("У подзадачи отсутвует эпик", e);
+            }
+            return epicId;
+        }
+        if (epicRef < 0 || epicRef >= index
+                || operations.get(epicRef).action() != BatchOperation.Action.CREATE
+                || operations.get(epicRef).type() != TaskType.EPIC) {
+            throw new IllegalArgumentException(
+                    "Ссылка на эпик должна указывать на предшествующую операцию создания эпика: " + epicRef);
+        }
+        return null;
+    }
+
+    private void checkExistsInBatch(TaskType type, Integer id, Map<Integer, TaskType> overlay) {
+        boolean exists = id != null && (overlay.containsKey(id)
+                ? overlay.get(id) == type
+                : storageOf(type).containsKey(id));
+        if (!exists) {
+            throw new NoSuchElementException(String.format("Задачи с id=%s не существует.", id));
+        }
+    }
+
+    private Map<Integer, ? extends Task> storageOf(TaskType type) {
+        return switch (type) {
+            case TASK -> taskMap;
+            case EPIC -> epicTaskMap;
+            case SUBTASK -> subTaskMap;
+        };
+    }
+
+    @Override
+    public List<Task> importTasks(Stream<? extends Task> source) {
+        List<Task> tasks = new ArrayList<>();
+        source.forEachOrdered(tasks::add);
+        Set<Integer> importedEpics = new HashSet<>();
+        List<Integer> scheduled = new ArrayList<>();
+        for (int i = 0; i < tasks.size(); i++) {
+            var task = tasks.get(i);
+            if (task.getType() == TaskType.EPIC) {
+                if (task.getId() != null && !importedEpics.add(task.getId())) {
+                    throw new IllegalArgumentException(importError(i, "Повторяющийся id эпика " + task.getId()));
+                }
+            } else if (canPrioritized(task)) {
+                scheduled.add(i);
+            }
+        }
+        for (int i = 0; i < tasks.size(); i++) {
+            if (tasks.get(i) instanceof SubTask subTask
+                    && !importedEpics.contains(subTask.getEpicTaskId())
+                    && (subTask.getEpicTaskId() == null || !epicTaskMap.containsKey(subTask.getEpicTaskId()))) {
+                throw new NoSuchElementException(importError(i, "У подзадачи отсутвует эпик"));
+            }
+        }
+
+        scheduled.sort(Comparator.comparing(i -> tasks.get(i).getStartTime()));
+        Instant reachedEnd = null;
+        for (int i : scheduled) {
+            var task = tasks.get(i);
+            if (reachedEnd != null && !reachedEnd.isBefore(task.getStartTime())
+                    || prioritizedIndex.hasIntersection(task.getStartTime(), task.getEndTime(), Set.of())) {
+                throw new TimeIntersectionException(importError(i, "На заданное время уже запланирована задача."));
+            }
+            reachedEnd = reachedEnd == null || task.getEndTime().isAfter(reachedEnd) ? task.getEndTime() : reachedEnd;
+        }
+
+        int firstId = reserveIds(tasks.size());
+        Map<Integer, Integer> epicIds = new HashMap<>();
+        for (int i = 0; i < tasks.size(); i++) {
+            var task = tasks.get(i);
+            if (task.getType() == TaskType.EPIC && task.getId() != null) {
+                epicIds.put(task.getId(), firstId + i);
+            }
+            task.setId(firstId + i);
+        }
+
+        var subTasksByEpic = new HashMap<Integer, List<SubTask>>();
+        for (var task : tasks) {
+            switch (task) {
+                case EpicTask epicTask -> epicTaskMap.put(epicTask.getId(), epicTask);
+                case SubTask subTask -> {
+                    subTask.setEpicTaskId(epicIds.getOrDefault(subTask.getEpicTaskId(), subTask.getEpicTaskId()));
+                    subTaskMap.put(subTask.getId(), subTask);
+                    subTasksByEpic.computeIfAbsent(subTask.getEpicTaskId(), id -> new ArrayList<>()).add(subTask);
+                }
+                default -> taskMap.put(task.getId(), task);
+            }
+        }
+        subTasksByEpic.forEach((epicId, subTasks) -> {
+            var epicTask = epicTaskMap.get(epicId);
+            epicTask.addSubtasks(subTasks);
+            verifyEpicFields(epicTask);
+        });
+
+        List<Task> sorted = scheduled.stream().<Task>map(tasks::get).toList();
+        if (prioritizedIndex.size() == 0) {
+            prioritizedIndex.loadSorted(sorted);
+        } else {
+            sorted.forEach(prioritizedIndex::add);
+        }
+
+        EnumSet<TaskType> touched = EnumSet.noneOf(TaskType.class);
+        tasks.forEach(task -> touched.add(task.getType()));
+        if (touched.contains(TaskType.SUBTASK)) {
+            touched.add(TaskType.EPIC);
+        }
+        touched.forEach(type -> fireMutation(type, null));
+        return tasks;
+    }
+
+    private static String importError(int index, String message) {
+        return String.format("Ошибка импорта, запись #%d: %s", index + 1, message);
     }
 
     @Override
@@ -279,62 +576,163 @@ public class InMemoryTaskManager implements TaskManager {
         return historyManager.getHistory();
     }
 
+    @Override
+    public List<Task> getHistory(int limit) {
+        return historyManager.getHistory(limit);
+    }
+
     @Override
     public List<Task> getPrioritizedTasks() {
-        return new ArrayList<>(prioritizedTaskSet);
+        return prioritizedIndex.toList();
     }
 
-    private int generateId() {
+    @Override
+    public List<Task> getPrioritizedTasks(Instant from, Instant to, int limit) {
+        checkLimit(limit);
+        return prioritizedIndex.range(from, to, limit);
+    }
+
+    @Override
+    public List<Task> getNextPrioritizedTasks(Instant from, int limit) {
+        checkLimit(limit);
+        return prioritizedIndex.startingFrom(Objects.requireNonNull(from), limit);
+    }
+
+    protected int generateId() {
         return idCounter++;
     }
 
-    protected void recalculateEpicFields(EpicTask epicTask) {
-        recalculateEpicStatus(epicTask);
-        recalculateEpicTime(epicTask);
+    /**
+     * Резервирует {@code count} идущих подряд id и возвращает первый из них.
+     */
+    protected int reserveIds(int count) {
+        int first = idCounter;
+        idCounter += count;
+        return first;
     }
 
-    private void recalculateEpicStatus(EpicTask epicTask) {
-        if (epicTask.getSubtaskIds().isEmpty()) {
-            epicTask.setStatus(TaskStatus.NEW);
-            return;
+    // Обход идёт по упорядоченной по id карте, поэтому страница стоит O(log n + limit), а курсор остаётся
+    // корректным при вставках и удалениях между запросами.
+    private static <T extends Task> Page<T> page(NavigableMap<Integer, T> storage, Integer afterId, int limit) {
+        checkLimit(limit);
+        var view = afterId == null ? storage : storage.tailMap(afterId, false);
+        List<T> items = new ArrayList<>(Math.min(limit, 256));
+        Integer lastId = null;
+        for (var entry : view.entrySet()) {
+            if (items.size() == limit) {
+                return new Page<>(items, lastId);
+            }
+            items.add(entry.getValue());
+            lastId = entry.getKey();
         }
+        return new Page<>(items, null);
+    }
 
-        for (TaskStatus status : TaskStatus.values()) {
-            boolean isAllSubtasksMatchStatus = epicTask.getSubtaskIds()
-                    .stream()
-                    .map(subTaskMap::get)
-                    .allMatch(t -> t.getStatus() == status);
+    private static void checkLimit(int limit) {
+        if (limit < 1) {
+            throw new IllegalArgumentException("Размер страницы должен быть положительным: " + limit);
+        }
+    }
 
-            if (isAllSubtasksMatchStatus) {
-                epicTask.setStatus(status);
-                return;
-            }
+    @Override
+    public void addMutationListener(TaskMutationListener listener) {
+        mutationListeners.add(listener);
+    }
+
+    @Override
+    public void removeMutationListener(TaskMutationListener listener) {
+        mutationListeners.remove(listener);
+    }
+
+    @Override
+    public long getVersion() {
+        return version.get();
+    }
+
+    @Override
+    public long getVersion(TaskType type) {
+        return typeVersions.get(type.ordinal());
+    }
+
+    @Override
+    public Instant getLastModified(TaskType type) {
+        return Instant.ofEpochMilli(typeModifiedAt.get(type.ordinal()));
+    }
+
+    // Версия растёт после уведомления слушателей: кто увидел новую версию, уже не получит из их кэшей
+    // ответ, собранный до изменения.
+    protected void fireMutation(TaskType type, Integer id) {
+        for (var listener : mutationListeners) {
+            listener.onMutation(type, id);
         }
-        epicTask.setStatus(TaskStatus.IN_PROGRESS);
+        long current = version.incrementAndGet();
+        typeVersions.accumulateAndGet(type.ordinal(), current, Math::max);
+        typeModifiedAt.accumulateAndGet(type.ordinal(), System.currentTimeMillis(), Math::max);
     }
 
-    private void recalculateEpicTime(EpicTask epicTask) {
-        var totalDuration = epicTask.getSubtaskIds()
-                    .stream()
-                    .map(subTaskMap::get)
-                    .filter(subTask -> subTask.getDuration() != null && subTask.getStartTime() != null)
-                    .map(SubTask::getDuration)
-                    .reduce(Duration.ZERO, (current, acc) -> acc.plus(current));
-        var minStartTime = epicTask.getSubtaskIds()
+    protected void forgetViews(Collection<Integer> ids) {
+        historyManager.removeAll(ids);
+    }
+
+    public void setEpicFieldsVerification(boolean enabled) {
+        this.epicFieldsVerification = enabled;
+    }
+
+    protected void verifyEpicFields(EpicTask epicTask) {
+        if (!epicFieldsVerification) {
+            return;
+        }
+
+        var subTasks = epicTask.getSubtaskIds()
                 .stream()
                 .map(subTaskMap::get)
+                .toList();
+        var scheduled = subTasks.stream()
                 .filter(subTask -> subTask.getDuration() != null && subTask.getStartTime() != null)
+                .toList();
+
+        var expectedStatus = calculateEpicStatus(subTasks);
+        var expectedDuration = scheduled.stream()
+                .map(SubTask::getDuration)
+                .reduce(Duration.ZERO, Duration::plus);
+        var expectedStartTime = scheduled.stream()
                 .map(SubTask::getStartTime)
-                .min(Instant::compareTo);
-        var maxEndTime = epicTask.getSubtaskIds()
-                .stream()
-                .map(subTaskMap::get)
-                .filter(subTask -> subTask.getDuration() != null && subTask.getStartTime() != null)
-                .map(subTask -> subTask.getStartTime().plus(subTask.getDuration()))
-                .max(Instant::compareTo);
-        epicTask.setDuration(totalDuration);
-        epicTask.setStartTime(minStartTime.orElse(null));
-        epicTask.setEndTime(maxEndTime.orElse(null));
+                .min(Instant::compareTo)
+                .orElse(null);
+        var expectedEndTime = scheduled.stream()
+                .map(SubTask::getEndTime)
+                .max(Instant::compareTo)
+                .orElse(null);
+
+        if (epicTask.getStatus() != expectedStatus
+                || !Objects.equals(epicTask.getDuration(), expectedDuration)
+                || !Objects.equals(epicTask.getStartTime(), expectedStartTime)
+                || !Objects.equals(epicTask.getEndTime(), expectedEndTime)) {
+            throw new IllegalStateException(String.format(
+                    "Поля эпика id=%s рассчитаны неверно: статус %s (ожидался %s), начало %s (ожидалось %s), "
+                            + "окончание %s (ожидалось %s), длительность %s (ожидалась %s)",
+                    epicTask.getId(), epicTask.getStatus(), expectedStatus,
+                    epicTask.getStartTime(), expectedStartTime,
+                    epicTask.getEndTime(), expectedEndTime,
+                    epicTask.getDuration(), expectedDuration));
+        }
+    }
+
+    private TaskStatus calculateEpicStatus(List<SubTask> subTasks) {
+        if (subTasks.isEmpty()) {
+            return TaskStatus.NEW;
+        }
+
+        for (TaskStatus status : TaskStatus.values()) {
+            boolean isAllSubtasksMatchStatus = subTasks
+                    .stream()
+                    .allMatch(t -> t.getStatus() == status);
+
+            if (isAllSubtasksMatchStatus) {
+                return status;
+            }
+        }
+        return TaskStatus.IN_PROGRESS;
     }
 
     private void checkTaskExistsInStorage(Integer taskId, Map<Integer, ? extends Task> storage) {
@@ -349,16 +747,7 @@ public class InMemoryTaskManager implements TaskManager {
                 && task.getStartTime().isBefore(task.getEndTime());
     }
 
-    protected boolean hasTimeIntersection(Task another, Stream<Task> storage) {
-
-        BiPredicate<Instant, Instant> isBeforeOrEq = (a, b) -> a.isBefore(b) || a.equals(b);
-        BiPredicate<Instant, Instant> isAfterOrEq = (a, b) -> a.isAfter(b) || a.equals(b);
-
-        return storage
-            .anyMatch(t -> isBeforeOrEq.test(t.getEndTime(), another.getEndTime()) && isAfterOrEq.test(t.getEndTime(), another.getStartTime())
-                    || isBeforeOrEq.test(t.getStartTime(), another.getEndTime()) && isAfterOrEq.test(t.getStartTime(), another.getStartTime())
-                    || isBeforeOrEq.test(another.getEndTime(), t.getEndTime()) && isAfterOrEq.test(another.getEndTime(), t.getStartTime())
-                    || isBeforeOrEq.test(another.getStartTime(), t.getEndTime()) && isAfterOrEq.test(another.getStartTime(),t.getStartTime())
-            );
+    protected boolean hasTimeIntersection(Task task) {
+        return !batchApplying && prioritizedIndex.hasIntersection(task);
     }
 }
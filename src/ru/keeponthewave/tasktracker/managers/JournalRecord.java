@@ -0,0 +1,84 @@
+package ru.keeponthewave.tasktracker.managers;
+
+import ru.keeponthewave.tasktracker.model.Task;
+import ru.keeponthewave.tasktracker.model.TaskCsvCodec;
+import ru.keeponthewave.tasktracker.model.TaskType;
+
+import java.util.InputMismatchException;
+
+public record JournalRecord(Operation operation, TaskType type, Integer id, Task task) {
+    public enum Operation {
+        CREATE('C'),
+        UPDATE('U'),
+        DELETE('D'),
+        DELETE_ALL('X'),
+        BATCH('B');
+
+        private final char code;
+
+        Operation(char code) {
+            this.code = code;
+        }
+
+        static Operation fromCode(char code) {
+            for (Operation operation : values()) {
+                if (operation.code == code) {
+                    return operation;
+                }
+            }
+            throw new InputMismatchException("Неизвестная операция журнала: " + code);
+        }
+    }
+
+    public static JournalRecord created(Task task) {
+        return new JournalRecord(Operation.CREATE, task.getType(), task.getId(), task);
+    }
+
+    public static JournalRecord updated(Task task) {
+        return new JournalRecord(Operation.UPDATE, task.getType(), task.getId(), task);
+    }
+
+    public static JournalRecord deleted(TaskType type, int id) {
+        return new JournalRecord(Operation.DELETE, type, id, null);
+    }
+
+    public static JournalRecord deletedAll(TaskType type) {
+        return new JournalRecord(Operation.DELETE_ALL, type, null, null);
+    }
+
+    /**
+     * Заголовок пакета: следующие {@code size} записей применяются при восстановлении только все вместе.
+     */
+    public static JournalRecord batch(int size) {
+        return new JournalRecord(Operation.BATCH, null, size, null);
+    }
+
+    public String encode() {
+        return switch (operation) {
+            case CREATE, UPDATE -> TaskCsvCodec.append(new StringBuilder(128).append(operation.code).append(','), task)
+                    .toString();
+            case DELETE -> operation.code + "," + type + "," + id;
+            case DELETE_ALL -> operation.code + "," + type;
+            case BATCH -> operation.code + "," + id;
+        };
+    }
+
+    public static JournalRecord decode(String line) {
+        if (line.length() < 3 || line.charAt(1) != ',') {
+            throw new InputMismatchException("Некорректная запись журнала");
+        }
+        Operation operation = Operation.fromCode(line.charAt(0));
+        return switch (operation) {
+            case CREATE, UPDATE -> {
+                Task task = TaskCsvCodec.decode(line, 2);
+                yield new JournalRecord(operation, task.getType(), task.getId(), task);
+            }
+            case DELETE -> {
+                String[] parts = line.substring(2).split(",");
+                yield deleted(TaskType.valueOf(parts[0]), Integer.parseInt(parts[1]));
+            }
+            case DELETE_ALL -> deletedAll(TaskType.valueOf(line.substring(2)));
+            case BATCH -> batch(Integer.parseInt(line.substring(2)));
+        };
+    }
+}
@@ -0,0 +1,12 @@
+package ru.keeponthewave.tasktracker.managers;
+
+import ru.keeponthewave.tasktracker.model.Task;
+
+import java.util.List;
+
+/**
+ * Страница задач в порядке возрастания id. {@code nextCursor} - id последней задачи страницы, если дальше
+ * есть ещё задачи, иначе {@code null}.
+ */
+public record Page<T extends Task>(List<T> items, Integer nextCursor) {
+}
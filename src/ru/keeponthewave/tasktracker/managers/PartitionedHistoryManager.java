@@ -0,0 +1,233 @@
+package ru.keeponthewave.tasktracker.managers;
+
+import ru.keeponthewave.tasktracker.http.ioc.InjectValue;
+import ru.keeponthewave.tasktracker.http.ioc.InjectableConstructor;
+import ru.keeponthewave.tasktracker.model.Task;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.LongSupplier;
+
+/**
+ * История просмотров, разделённая по клиентам из {@link ClientContext}. У каждого клиента своя ограниченная
+ * история; клиент, не обращавшийся дольше {@code historyIdleTimeout}, забывается. Общий объём ограничен
+ * {@code historyTotalCapacity}: клиентов одновременно хранится не больше, чем помещается историй полного
+ * размера, а при превышении вытесняется дольше всех молчавший клиент.
+ * <p>
+ * Для удаления задач ведётся обратный индекс: id задачи - разделы, в истории которых она есть, поэтому
+ * удаление блокирует только эти разделы.
+ */
+public class PartitionedHistoryManager implements HistoryManager {
+    public static final int DEFAULT_TOTAL_CAPACITY = 100_000;
+    public static final Duration DEFAULT_IDLE_TIMEOUT = Duration.ofMinutes(30);
+
+    private final Map<String, Partition> partitions = new ConcurrentHashMap<>();
+    // Множества меняются только внутри compute по своему ключу; удалённое из карты множество принадлежит
+    // удалившему его потоку.
+    private final Map<Integer, Set<Partition>> viewers = new ConcurrentHashMap<>();
+    private final int capacity;
+    private final int maxPartitions;
+    private final long idleTimeoutNanos;
+    private final LongSupplier nanoClock;
+    private final AtomicLong lastSweep;
+
+    private static final class Partition {
+        private final InMemoryHistoryManager history;
+        private volatile long lastAccess;
+        // Изменяется под блокировкой раздела: после отбрасывания раздел больше не попадает в индекс.
+        private boolean dropped;
+
+        Partition(int capacity, long now) {
+            history = new InMemoryHistoryManager(capacity);
+            lastAccess = now;
+        }
+    }
+
+    public PartitionedHistoryManager() {
+        this(null, null, null);
+    }
+
+    @InjectableConstructor
+    public PartitionedHistoryManager(@InjectValue(token = "historyCapacity", required = false) Integer capacity,
+                                     @InjectValue(token = "historyTotalCapacity", required = false)
+                                     Integer totalCapacity,
+                                     @InjectValue(token = "historyIdleTimeout", required = false)
+                                     Duration idleTimeout) {
+        this(capacity, totalCapacity, idleTimeout, System::nanoTime);
+    }
+
+    PartitionedHistoryManager(Integer capacity, Integer totalCapacity, Duration idleTimeout, LongSupplier nanoClock) {
+        this.capacity = capacity == null ? InMemoryHistoryManager.DEFAULT_CAPACITY : capacity;
+        int total = totalCapacity == null ? Math.max(DEFAULT_TOTAL_CAPACITY, this.capacity) : totalCapacity;
+        if (this.capacity < 1 || total < this.capacity) {
+            throw new IllegalArgumentException(String.format(
+                    "Некорректные размеры истории: на клиента %d, всего %d", this.capacity, total));
+        }
+        Duration timeout = idleTimeout == null ? DEFAULT_IDLE_TIMEOUT : idleTimeout;
+        if (timeout.isNegative() || timeout.isZero()) {
+            throw new IllegalArgumentException("Время простоя должно быть положительным: " + timeout);
+        }
+        this.maxPartitions = total / this.capacity;
+        this.idleTimeoutNanos = timeout.toNanos();
+        this.nanoClock = nanoClock;
+        this.lastSweep = new AtomicLong(nanoClock.getAsLong());
+    }
+
+    @Override
+    public boolean isConcurrent() {
+        return true;
+    }
+
+    @Override
+    public void add(Task task) {
+        var partition = partitionFor(ClientContext.current());
+        synchronized (partition) {
+            if (!partition.dropped) {
+                viewers.compute(task.getId(), (id, set) -> {
+                    var result = set == null ? new HashSet<Partition>() : set;
+                    result.add(partition);
+                    return result;
+                });
+            }
+            Integer evicted = partition.history.addEvicting(task);
+            if (evicted != null) {
+                unindex(evicted, partition);
+            }
+        }
+    }
+
+    @Override
+    public void remove(int id) {
+        removeAll(List.of(id));
+    }
+
+    @Override
+    public void removeAll(Collection<Integer> ids) {
+        Map<Partition, List<Integer>> byPartition = new IdentityHashMap<>();
+        for (int id : ids) {
+            var set = viewers.remove(id);
+            if (set != null) {
+                for (var partition : set) {
+                    byPartition.computeIfAbsent(partition, p -> new ArrayList<>()).add(id);
+                }
+            }
+        }
+        byPartition.forEach((partition, removed) -> {
+            synchronized (partition) {
+                partition.history.removeAll(removed);
+            }
+        });
+    }
+
+    @Override
+    public List<Task> getHistory() {
+        var partition = existingPartition(ClientContext.current());
+        if (partition == null) {
+            return List.of();
+        }
+        synchronized (partition) {
+            return partition.history.getHistory();
+        }
+    }
+
+    @Override
+    public List<Task> getHistory(int limit) {
+        var partition = existingPartition(ClientContext.current());
+        if (partition == null) {
+            return List.of();
+        }
+        synchronized (partition) {
+            return partition.history.getHistory(limit);
+        }
+    }
+
+    int partitionCount() {
+        return partitions.size();
+    }
+
+    int indexedTaskCount() {
+        return viewers.size();
+    }
+
+    private Partition existingPartition(String clientId) {
+        var partition = partitions.get(clientId);
+        if (partition == null) {
+            return null;
+        }
+        long now = nanoClock.getAsLong();
+        if (now - partition.lastAccess > idleTimeoutNanos) {
+            if (partitions.remove(clientId, partition)) {
+                drop(partition);
+            }
+            return null;
+        }
+        partition.lastAccess = now;
+        return partition;
+    }
+
+    private Partition partitionFor(String clientId) {
+        var partition = existingPartition(clientId);
+        if (partition != null) {
+            return partition;
+        }
+        long now = nanoClock.getAsLong();
+        partition = partitions.computeIfAbsent(clientId, id -> new Partition(capacity, now));
+        if (partitions.size() > maxPartitions || now - lastSweep.get() > idleTimeoutNanos) {
+            evict(clientId, now);
+        }
+        return partition;
+    }
+
+    // Вызывается только при появлении нового клиента, поэтому полный обход разделов здесь допустим.
+    private void evict(String keep, long now) {
+        lastSweep.set(now);
+        for (var entry : partitions.entrySet()) {
+            if (!entry.getKey().equals(keep) && now - entry.getValue().lastAccess > idleTimeoutNanos
+                    && partitions.remove(entry.getKey(), entry.getValue())) {
+                drop(entry.getValue());
+            }
+        }
+        while (partitions.size() > maxPartitions) {
+            String eldest = null;
+            long eldestAccess = 0;
+            for (var entry : partitions.entrySet()) {
+                if (!entry.getKey().equals(keep)
+                        && (eldest == null || entry.getValue().lastAccess - eldestAccess < 0)) {
+                    eldest = entry.getKey();
+                    eldestAccess = entry.getValue().lastAccess;
+                }
+            }
+            if (eldest == null) {
+                return;
+            }
+            var removed = partitions.remove(eldest);
+            if (removed != null) {
+                drop(removed);
+            }
+        }
+    }
+
+    private void drop(Partition partition) {
+        synchronized (partition) {
+            partition.dropped = true;
+            for (var task : partition.history.getHistory()) {
+                unindex(task.getId(), partition);
+            }
+        }
+    }
+
+    private void unindex(int id, Partition partition) {
+        viewers.computeIfPresent(id, (key, set) -> {
+            set.remove(partition);
+            return set.isEmpty() ? null : set;
+        });
+    }
+}
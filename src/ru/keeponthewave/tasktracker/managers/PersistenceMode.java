@@ -0,0 +1,6 @@
+package ru.keeponthewave.tasktracker.managers;
+
+public enum PersistenceMode {
+    SNAPSHOT,
+    JOURNAL
+}
@@ -0,0 +1,151 @@
+package ru.keeponthewave.tasktracker.managers;
+
+import ru.keeponthewave.tasktracker.model.Task;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableSet;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.concurrent.ConcurrentHashMap;
+
+public class PrioritizedTaskIndex {
+    public static final Comparator<Task> START_ORDER = Comparator.comparing(Task::getStartTime)
+            .thenComparing(Task::getId);
+
+    private static final Comparator<Slot> SLOT_ORDER = Comparator.comparing(Slot::start)
+            .thenComparingInt(Slot::id);
+
+    // Интервалы в индексе не пересекаются, поэтому при сортировке по началу они отсортированы и по концу:
+    // ближайшая слева задача имеет максимальный конец среди всех, начавшихся раньше.
+    private final NavigableSet<Slot> slots = new TreeSet<>(SLOT_ORDER);
+    // Проверка contains() по id безопасна без внешней блокировки: ConcurrentTaskManager решает по ней,
+    // нужно ли брать блокировку расписания.
+    private final Map<Integer, Slot> slotsById = new ConcurrentHashMap<>();
+
+    private record Slot(Instant start, Instant end, int id, Task task) {
+    }
+
+    public boolean hasIntersection(Task task) {
+        return hasIntersection(task.getStartTime(), task.getEndTime(),
+                task.getId() == null ? Set.of() : Set.of(task.getId()));
+    }
+
+    /**
+     * Пересекается ли интервал с задачами индекса, кроме задач с id из {@code ignoredIds}: их место
+     * в расписании считается уже освобождённым.
+     */
+    public boolean hasIntersection(Instant start, Instant end, Set<Integer> ignoredIds) {
+        for (var slot = slots.floor(probe(end, Integer.MAX_VALUE));
+             slot != null;
+             slot = slots.lower(slot)) {
+            if (slot.end().isBefore(start)) {
+                return false;
+            }
+            if (!ignoredIds.contains(slot.id())) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    public void add(Task task) {
+        remove(task.getId());
+        var slot = new Slot(task.getStartTime(), task.getEndTime(), task.getId(), task);
+        slots.add(slot);
+        slotsById.put(slot.id(), slot);
+    }
+
+    /**
+     * Загружает в пустой индекс задачи, уже отсортированные по {@link #START_ORDER} и проверенные
+     * на пересечения: повторная проверка пересечений для них не нужна.
+     */
+    public void loadSorted(List<? extends Task> sorted) {
+        if (!slots.isEmpty()) {
+            throw new IllegalStateException("Индекс уже заполнен");
+        }
+        for (var task : sorted) {
+            var slot = new Slot(task.getStartTime(), task.getEndTime(), task.getId(), task);
+            slots.add(slot);
+            slotsById.put(slot.id(), slot);
+        }
+    }
+
+    public void remove(int id) {
+        var slot = slotsById.remove(id);
+        if (slot != null) {
+            slots.remove(slot);
+        }
+    }
+
+    public void removeAll(Collection<? extends Task> tasks) {
+        for (var task : tasks) {
+            if (task != null && task.getId() != null) {
+                remove(task.getId());
+            }
+        }
+    }
+
+    public boolean contains(Task task) {
+        return task.getId() != null && slotsById.containsKey(task.getId());
+    }
+
+    public void clear() {
+        slots.clear();
+        slotsById.clear();
+    }
+
+    public int size() {
+        return slotsById.size();
+    }
+
+    public List<Task> toList() {
+        List<Task> result = new ArrayList<>(slots.size());
+        for (var slot : slots) {
+            result.add(slot.task());
+        }
+        return result;
+    }
+
+    /**
+     * Задачи, пересекающиеся с полуинтервалом [{@code from}, {@code to}), в порядке начала, не больше
+     * {@code limit}. {@code null} на любой границе - без ограничения. Стоит O(log n + limit).
+     */
+    public List<Task> range(Instant from, Instant to, int limit) {
+        NavigableSet<Slot> view = slots;
+        if (from != null) {
+            // Интервалы не пересекаются, поэтому из начавшихся раньше from в окно может попасть только последняя.
+            var previous = slots.lower(probe(from, Integer.MIN_VALUE));
+            view = previous != null && previous.end().isAfter(from)
+                    ? slots.tailSet(previous, true)
+                    : slots.tailSet(probe(from, Integer.MIN_VALUE), true);
+        }
+        return collect(view, to, limit);
+    }
+
+    /**
+     * Первые {@code limit} задач, начинающихся не раньше {@code from}.
+     */
+    public List<Task> startingFrom(Instant from, int limit) {
+        return collect(slots.tailSet(probe(from, Integer.MIN_VALUE), true), null, limit);
+    }
+
+    private static List<Task> collect(NavigableSet<Slot> view, Instant to, int limit) {
+        List<Task> result = new ArrayList<>(Math.min(limit, 256));
+        for (var slot : view) {
+            if (result.size() == limit || to != null && !slot.start().isBefore(to)) {
+                break;
+            }
+            result.add(slot.task());
+        }
+        return result;
+    }
+
+    private static Slot probe(Instant start, int id) {
+        return new Slot(start, null, id, null);
+    }
+}
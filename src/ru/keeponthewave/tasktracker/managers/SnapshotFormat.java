@@ -0,0 +1,61 @@
+package ru.keeponthewave.tasktracker.managers;
+
+import ru.keeponthewave.tasktracker.model.Task;
+
+import java.io.IOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+
+interface SnapshotFormat {
+    /**
+     * @param coveredSegment номер последнего сегмента журнала, записи которого уже вошли в снимок;
+     *                       такие сегменты при восстановлении не воспроизводятся.
+     */
+    void write(FileChannel channel,
+               long coveredSegment,
+               Collection<? extends Task> tasks,
+               Collection<? extends Task> epics,
+               Collection<? extends Task> subTasks) throws IOException;
+
+    /**
+     * Возвращает задачи снимка в порядке записи. Части файла разбираются параллельно.
+     */
+    List<Task> read(Path file) throws IOException;
+
+    /**
+     * Номер последнего сегмента журнала, покрытого снимком; 0 - если снимок его не хранит.
+     */
+    long readCoveredSegment(Path file) throws IOException;
+
+    /**
+     * Номер записи (для CSV - номер строки) задачи с данным индексом в результате {@link #read},
+     * по которому строится сообщение об ошибке.
+     */
+    int recordNumber(int index);
+
+    static MappedByteBuffer map(Path file) throws IOException {
+        try (var channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            if (channel.size() > Integer.MAX_VALUE) {
+                throw new IOException("Снимок больше 2 ГБ не может быть отображён в память");
+            }
+            return channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+        }
+    }
+
+    static List<Task> concat(List<List<Task>> parts) {
+        int size = 0;
+        for (var part : parts) {
+            size += part.size();
+        }
+        var result = new ArrayList<Task>(size);
+        for (var part : parts) {
+            result.addAll(part);
+        }
+        return result;
+    }
+}
@@ -0,0 +1,33 @@
+package ru.keeponthewave.tasktracker.managers;
+
+import java.time.Duration;
+
+/**
+ * Условия, при которых журнал сворачивается в новый снимок. Нулевой порог или пустой интервал отключают
+ * соответствующий триггер.
+ */
+public record SnapshotPolicy(long maxJournalBytes, long maxJournalRecords, Duration interval) {
+    public static final SnapshotPolicy DISABLED = new SnapshotPolicy(0, 0, null);
+
+    public static SnapshotPolicy defaults() {
+        return new SnapshotPolicy(16L * 1024 * 1024, 100_000, null);
+    }
+
+    public SnapshotPolicy {
+        if (maxJournalBytes < 0 || maxJournalRecords < 0) {
+            throw new IllegalArgumentException("Пороги снимка не могут быть отрицательными");
+        }
+        if (interval != null && (interval.isZero() || interval.isNegative())) {
+            throw new IllegalArgumentException("Интервал снимка должен быть положительным");
+        }
+    }
+
+    public boolean hasInterval() {
+        return interval != null;
+    }
+
+    public boolean isExceeded(long journalBytes, long journalRecords) {
+        return (maxJournalBytes > 0 && journalBytes >= maxJournalBytes)
+                || (maxJournalRecords > 0 && journalRecords >= maxJournalRecords);
+    }
+}
@@ -0,0 +1,31 @@
+package ru.keeponthewave.tasktracker.managers;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+
+public enum StorageFormat {
+    CSV(new CsvSnapshotFormat()),
+    BINARY(new BinarySnapshotFormat());
+
+    private final SnapshotFormat format;
+
+    StorageFormat(SnapshotFormat format) {
+        this.format = format;
+    }
+
+    SnapshotFormat format() {
+        return format;
+    }
+
+    public static StorageFormat detect(Path file) throws IOException {
+        byte[] magic = BinarySnapshotFormat.MAGIC;
+        byte[] head;
+        try (InputStream in = Files.newInputStream(file)) {
+            head = in.readNBytes(magic.length);
+        }
+        return Arrays.equals(head, magic) ? BINARY : CSV;
+    }
+}
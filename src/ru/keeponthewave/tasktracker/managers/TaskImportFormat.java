@@ -0,0 +1,81 @@
+package ru.keeponthewave.tasktracker.managers;
+
+import com.google.gson.Gson;
+import com.google.gson.GsonBuilder;
+import com.google.gson.JsonParseException;
+import ru.keeponthewave.tasktracker.lib.gson.adapters.DurationTypeAdapter;
+import ru.keeponthewave.tasktracker.lib.gson.adapters.InstantTypeAdapter;
+import ru.keeponthewave.tasktracker.model.EpicTask;
+import ru.keeponthewave.tasktracker.model.SubTask;
+import ru.keeponthewave.tasktracker.model.Task;
+import ru.keeponthewave.tasktracker.model.TaskCsvCodec;
+import ru.keeponthewave.tasktracker.model.TaskStatus;
+import ru.keeponthewave.tasktracker.model.TaskType;
+
+import java.io.BufferedReader;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.InputMismatchException;
+import java.util.stream.Stream;
+
+/**
+ * Форматы входных данных для {@link TaskManager#importTasks}. Строки читаются лениво, по одной.
+ * <ul>
+ *     <li>{@link #CSV} - строки формата {@link Task#SERIALIZATION_FORMAT}, первая строка может быть
+ *     заголовком;</li>
+ *     <li>{@link #JSON_LINES} - по объекту JSON на строку с полями id, type, name, description, status,
+ *     epicId, startTime (ISO-8601) и duration (минуты).</li>
+ * </ul>
+ */
+public enum TaskImportFormat {
+    CSV,
+    JSON_LINES;
+
+    private static final Gson GSON = new GsonBuilder()
+            .registerTypeAdapter(Instant.class, new InstantTypeAdapter().nullSafe())
+            .registerTypeAdapter(Duration.class, new DurationTypeAdapter().nullSafe())
+            .create();
+
+    private record JsonTask(Integer id, TaskType type, String name, String description, TaskStatus status,
+                            Integer epicId, Instant startTime, Duration duration) {
+    }
+
+    public Stream<Task> read(BufferedReader reader) {
+        int[] lineNumber = {0};
+        return reader.lines()
+                .filter(line -> {
+                    lineNumber[0]++;
+                    return !line.isBlank() && !(this == CSV && lineNumber[0] == 1 && line.startsWith("id,"));
+                })
+                .map(line -> {
+                    try {
+                        return parse(line);
+                    } catch (RuntimeException e) {
+                        throw new InputMismatchException(
+                                String.format("Ошибка импорта в строке %d: %s", lineNumber[0], e.getMessage()));
+                    }
+                });
+    }
+
+    private Task parse(String line) {
+        if (this == CSV) {
+            return TaskCsvCodec.decode(line);
+        }
+        JsonTask json;
+        try {
+            json = GSON.fromJson(line, JsonTask.class);
+        } catch (JsonParseException e) {
+            throw new InputMismatchException("Некорректный JSON");
+        }
+        if (json == null || json.type() == null) {
+            throw new InputMismatchException("Не указан тип задачи");
+        }
+        return switch (json.type()) {
+            case TASK -> new Task(json.name(), json.description(), json.id(), json.status(), json.startTime(),
+                    json.duration());
+            case EPIC -> new EpicTask(json.name(), json.description(), json.id());
+            case SUBTASK -> new SubTask(json.name(), json.description(), json.id(), json.status(), json.epicId(),
+                    json.startTime(), json.duration());
+        };
+    }
+}
@@ -0,0 +1,362 @@
+package ru.keeponthewave.tasktracker.managers;
+
+import ru.keeponthewave.tasktracker.exceptions.FileManagerRestoreException;
+import ru.keeponthewave.tasktracker.exceptions.FileManagerSaveException;
+
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Consumer;
+
+/**
+ * Журнал изменений. Записи копятся в буфере и сбрасываются на диск одним write+fsync согласно
+ * {@link DurabilityPolicy}: {@link #append} возвращает номер записи, {@link #awaitDurable} блокирует
+ * до момента, когда запись с этим номером гарантированно на диске. Сбрасывает буфер один поток-лидер,
+ * остальные ждут его результата, поэтому пока идёт fsync, следующая группа набирается в новом буфере.
+ */
+public class TaskJournal implements Closeable {
+    private final Path path;
+    private final DurabilityPolicy durability;
+
+    private final ReentrantLock lock = new ReentrantLock();
+    private final Condition flushed = lock.newCondition();
+    private FileChannel channel;
+    private ByteArrayOutputStream pending = new ByteArrayOutputStream();
+    private int pendingRecords;
+    private long appendedSeq;
+    private long durableSeq;
+    private boolean flushing;
+    private IOException failure;
+    private ScheduledExecutorService flusher;
+
+    private long size;
+    private long records;
+    // Длина подтверждённой части файла после replay(); -1 - журнал не воспроизводился.
+    private long validLength = -1;
+
+    public TaskJournal(Path path) {
+        this(path, DurabilityPolicy.sync());
+    }
+
+    public TaskJournal(Path path, DurabilityPolicy durability) {
+        this.path = path;
+        this.durability = durability;
+    }
+
+    public Path getPath() {
+        return path;
+    }
+
+    public boolean isOpen() {
+        return channel != null;
+    }
+
+    public long size() {
+        return size;
+    }
+
+    public long records() {
+        return records;
+    }
+
+    public void open(boolean truncate) {
+        close();
+        openChannel(truncate);
+        if (durability.mode() == DurabilityPolicy.Mode.ASYNC) {
+            long interval = durability.window().toMillis();
+            flusher = Executors.newSingleThreadScheduledExecutor(runnable -> {
+                var thread = new Thread(runnable, "journal-flusher-" + path.getFileName());
+                thread.setDaemon(true);
+                return thread;
+            });
+            flusher.scheduleWithFixedDelay(this::flushQuietly, interval, interval, TimeUnit.MILLISECONDS);
+        }
+    }
+
+    public long append(JournalRecord record) {
+        return append(List.of(record));
+    }
+
+    /**
+     * Добавляет записи одним куском. Несколько записей предваряются заголовком пакета, и при восстановлении
+     * недописанный пакет отбрасывается целиком. Возвращает номер последней записи.
+     */
+    public long append(List<JournalRecord> batch) {
+        var encoded = new StringBuilder(batch.size() * 128);
+        if (batch.size() > 1) {
+            encoded.append(JournalRecord.batch(batch.size()).encode()).append('\n');
+        }
+        for (var record : batch) {
+            encoded.append(record.encode()).append('\n');
+        }
+        byte[] lines = encoded.toString().getBytes(StandardCharsets.UTF_8);
+        lock.lock();
+        try {
+            checkFailure();
+            pending.writeBytes(lines);
+            pendingRecords += batch.size();
+            size += lines.length;
+            records += batch.size();
+            appendedSeq += batch.size();
+            long seq = appendedSeq;
+            if (durability.mode() == DurabilityPolicy.Mode.SYNC) {
+                flushUpTo(seq);
+            } else if (pendingRecords >= durability.maxBatch()) {
+                flushed.signalAll();
+            }
+            return seq;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public void awaitDurable(long seq) {
+        if (durability.mode() != DurabilityPolicy.Mode.GROUP) {
+            return;
+        }
+        lock.lock();
+        try {
+            awaitBatch(seq);
+            flushUpTo(seq);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    // Лидер ждёт окно, чтобы в группу попали операции соседних потоков, но не дольше, чем до
+    // заполнения группы или до сброса, выполненного другим лидером.
+    private void awaitBatch(long seq) {
+        if (durability.window().isZero()) {
+            return;
+        }
+        long remaining = durability.window().toNanos();
+        try {
+            while (remaining > 0 && durableSeq < seq && pendingRecords < durability.maxBatch()) {
+                remaining = flushed.awaitNanos(remaining);
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private void flushUpTo(long seq) {
+        while (durableSeq < seq) {
+            checkFailure();
+            if (flushing) {
+                flushed.awaitUninterruptibly();
+                continue;
+            }
+            flushing = true;
+            byte[] batch = pending.toByteArray();
+            long batchSeq = appendedSeq;
+            pending = new ByteArrayOutputStream();
+            pendingRecords = 0;
+            lock.unlock();
+            try {
+                write(batch);
+            } catch (IOException e) {
+                failure = e;
+            } finally {
+                lock.lock();
+                flushing = false;
+                if (failure == null) {
+                    durableSeq = batchSeq;
+                }
+                flushed.signalAll();
+            }
+        }
+    }
+
+    private void write(byte[] batch) throws IOException {
+        var buffer = ByteBuffer.wrap(batch);
+        while (buffer.hasRemaining()) {
+            channel.write(buffer);
+        }
+        channel.force(false);
+    }
+
+    private void flushQuietly() {
+        lock.lock();
+        try {
+            flushUpTo(appendedSeq);
+        } catch (FileManagerSaveException e) {
+            System.out.println(e.getMessage());
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private void checkFailure() {
+        if (failure != null) {
+            String errorMessage = "Ошибка при записи в журнал: " + failure.getMessage();
+            System.out.println(errorMessage);
+            throw new FileManagerSaveException(errorMessage);
+        }
+    }
+
+    /**
+     * Воспроизводит журнал. Недописанный хвост (строка без перевода строки или повреждённая последняя
+     * строка) не применяется и отрезается при следующем {@link #open(boolean) open(false)}, чтобы новые
+     * записи не склеились с ним.
+     */
+    public void replay(Consumer<JournalRecord> consumer) {
+        validLength = -1;
+        if (!Files.exists(path)) {
+            return;
+        }
+
+        byte[] content;
+        try {
+            content = Files.readAllBytes(path);
+        } catch (IOException e) {
+            throw new FileManagerRestoreException("Ошибка при чтении журнала: " + e.getMessage(), 0, path);
+        }
+
+        records = 0;
+        validLength = 0;
+        List<JournalRecord> batch = null;
+        int batchSize = 0;
+        int batchStart = 0;
+        int lineNumber = 0;
+        for (int offset = 0; offset < content.length; ) {
+            int end = offset;
+            while (end < content.length && content[end] != '\n') {
+                end++;
+            }
+            lineNumber++;
+            // Запись без перевода строки не дописалась при аварийной остановке - она не была подтверждена
+            if (end == content.length) {
+                return;
+            }
+            String line = new String(content, offset, end - offset, StandardCharsets.UTF_8);
+            offset = end + 1;
+            if (line.isEmpty()) {
+                if (batch == null) {
+                    validLength = offset;
+                }
+                continue;
+            }
+            JournalRecord record;
+            try {
+                record = JournalRecord.decode(line);
+            } catch (RuntimeException e) {
+                if (offset == content.length) {
+                    return;
+                }
+                throw new FileManagerRestoreException("Повреждённая запись журнала: " + e.getMessage(), lineNumber, path);
+            }
+            if (record.operation() == JournalRecord.Operation.BATCH) {
+                if (batch != null) {
+                    throw new FileManagerRestoreException("Заголовок пакета внутри пакета", lineNumber, path);
+                }
+                batchSize = record.id();
+                batchStart = lineNumber;
+                batch = new ArrayList<>(batchSize);
+                continue;
+            }
+            if (batch == null) {
+                apply(consumer, record, lineNumber);
+                validLength = offset;
+                continue;
+            }
+            batch.add(record);
+            if (batch.size() == batchSize) {
+                for (var batched : batch) {
+                    apply(consumer, batched, batchStart);
+                }
+                batch = null;
+                validLength = offset;
+            }
+        }
+        // Недописанный пакет в конце журнала не был подтверждён: он не применяется и отрезается вместе
+        // с хвостом, иначе следующие записи были бы засчитаны в него.
+    }
+
+    private void apply(Consumer<JournalRecord> consumer, JournalRecord record, int lineNumber) {
+        try {
+            consumer.accept(record);
+        } catch (RuntimeException e) {
+            throw new FileManagerRestoreException("Ошибка применения записи журнала: " + e.getMessage(), lineNumber, path);
+        }
+        records++;
+    }
+
+    public void rotate(Path target) {
+        lock.lock();
+        try {
+            flushUpTo(appendedSeq);
+            closeChannel();
+            try {
+                Files.move(path, target, StandardCopyOption.ATOMIC_MOVE);
+            } catch (IOException e) {
+                throw new FileManagerSaveException("Ошибка при ротации журнала: " + e.getMessage());
+            }
+            openChannel(true);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    @Override
+    public void close() {
+        if (flusher != null) {
+            flusher.shutdown();
+            flusher = null;
+        }
+        lock.lock();
+        try {
+            if (channel == null) {
+                return;
+            }
+            try {
+                flushUpTo(appendedSeq);
+            } catch (FileManagerSaveException e) {
+                System.out.println("Ошибка при закрытии журнала: " + e.getMessage());
+            }
+            closeChannel();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private void openChannel(boolean truncate) {
+        try {
+            channel = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.WRITE);
+            if (truncate) {
+                channel.truncate(0);
+                records = 0;
+            } else if (validLength >= 0 && channel.size() > validLength) {
+                channel.truncate(validLength);
+                channel.force(false);
+            }
+            validLength = -1;
+            size = channel.size();
+            channel.position(size);
+        } catch (IOException e) {
+            throw new FileManagerSaveException("Ошибка при открытии журнала: " + e.getMessage());
+        }
+    }
+
+    private void closeChannel() {
+        try {
+            channel.close();
+        } catch (IOException e) {
+            System.out.println("Ошибка при закрытии журнала: " + e.getMessage());
+        }
+        channel = null;
+    }
+}
@@ -3,13 +3,21 @@ package ru.keeponthewave.tasktracker.managers;
 import ru.keeponthewave.tasktracker.model.EpicTask;
 import ru.keeponthewave.tasktracker.model.SubTask;
 import ru.keeponthewave.tasktracker.model.Task;
+import ru.keeponthewave.tasktracker.model.TaskType;
 
+import java.time.Instant;
 import java.util.Collection;
 import java.util.List;
+import java.util.stream.Stream;
 
 public interface TaskManager {
     Collection<Task> getAllTasks();
 
+    /**
+     * Задачи с id больше {@code afterId} (с начала, если {@code null}), не больше {@code limit} штук.
+     */
+    Page<Task> getTasksPage(Integer afterId, int limit);
+
     Task getTaskById(int id);
 
     Task createTask(Task task);
@@ -22,6 +30,8 @@ public interface TaskManager {
 
     Collection<SubTask> getAllSubTasks();
 
+    Page<SubTask> getSubTasksPage(Integer afterId, int limit);
+
     SubTask getSubTaskById(int id);
 
     SubTask createSubTask(SubTask task);
@@ -36,6 +46,8 @@ public interface TaskManager {
 
     Collection<EpicTask> getAllEpicTasks();
 
+    Page<EpicTask> getEpicTasksPage(Integer afterId, int limit);
+
     EpicTask getEpicTaskById(int id);
 
     EpicTask createEpicTask(EpicTask task);
@@ -46,7 +58,55 @@ public interface TaskManager {
 
     void deleteAllEpicTasks();
 
+    /**
+     * Применяет операции пакета целиком или не применяет ни одной. Пакет проверяется до изменений:
+     * существование задач и эпиков с учётом предыдущих операций пакета и пересечения по времени итогового
+     * расписания. Возвращает результат каждой операции: созданную, обновлённую или удалённую задачу.
+     *
+     * @throws ru.keeponthewave.tasktracker.exceptions.BatchRejectedException если пакет не прошёл проверку;
+     *                                                                        причиной служит исключение,
+     *                                                                        которое бросила бы операция.
+     */
+    List<Task> applyBatch(List<BatchOperation> operations);
+
+    /**
+     * Массовый импорт задач из другой системы. Задачи получают новые id одним блоком, подзадачи
+     * переводятся на новые id эпиков из того же импорта (иначе {@code epicId} ищется среди существующих
+     * эпиков). Пересечения по времени проверяются одной сортировкой всего импорта; при ошибке не
+     * импортируется ничего. Возвращает импортированные задачи в исходном порядке.
+     */
+    List<Task> importTasks(Stream<? extends Task> tasks);
+
     List<Task> getHistory();
 
+    List<Task> getHistory(int limit);
+
     List<Task> getPrioritizedTasks();
+
+    /**
+     * Задачи расписания, пересекающиеся с полуинтервалом [{@code from}, {@code to}), в порядке начала,
+     * не больше {@code limit}. {@code null} на границе означает отсутствие ограничения с этой стороны.
+     */
+    List<Task> getPrioritizedTasks(Instant from, Instant to, int limit);
+
+    /**
+     * Первые {@code limit} задач расписания, начинающихся не раньше {@code from}.
+     */
+    List<Task> getNextPrioritizedTasks(Instant from, int limit);
+
+    /**
+     * Монотонно растущая версия данных менеджера: меняется при любом изменении задач.
+     */
+    long getVersion();
+
+    /**
+     * Значение {@link #getVersion()} на момент последнего изменения задач этого типа.
+     */
+    long getVersion(TaskType type);
+
+    Instant getLastModified(TaskType type);
+
+    void addMutationListener(TaskMutationListener listener);
+
+    void removeMutationListener(TaskMutationListener listener);
 }
@@ -0,0 +1,15 @@
+package ru.keeponthewave.tasktracker.managers;
+
+import ru.keeponthewave.tasktracker.model.TaskType;
+
+/**
+ * Получает уведомления об изменениях задач. Вызывается синхронно в потоке, изменившем задачу, уже после
+ * изменения, поэтому обработчик должен быть быстрым и не обращаться к менеджеру.
+ */
+@FunctionalInterface
+public interface TaskMutationListener {
+    /**
+     * @param id id изменённой задачи или {@code null}, если изменились все задачи этого типа.
+     */
+    void onMutation(TaskType type, Integer id);
+}
@@ -1,13 +1,40 @@
 package ru.keeponthewave.tasktracker.model;
 
+import java.time.Duration;
 import java.time.Instant;
-import java.util.ArrayList;
-import java.util.List;
+import java.util.Collection;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.Set;
+import java.util.TreeMap;
 
 public class EpicTask extends Task {
-    private final List<Integer> subtaskIds;
+    private final Set<Integer> subtaskIds = new LinkedHashSet<>();
     private Instant endTime;
 
+    private final Map<Integer, SubtaskFootprint> footprints = new HashMap<>();
+    private final Map<TaskStatus, Integer> statusCounters = new EnumMap<>(TaskStatus.class);
+    private final NavigableMap<Instant, Integer> startTimes = new TreeMap<>();
+    private final NavigableMap<Instant, Integer> endTimes = new TreeMap<>();
+    private Duration scheduledDuration = Duration.ZERO;
+
+    private record SubtaskFootprint(TaskStatus status, Instant startTime, Instant endTime, Duration duration) {
+        static SubtaskFootprint of(SubTask subTask) {
+            if (subTask.getStartTime() == null || subTask.getDuration() == null) {
+                return new SubtaskFootprint(subTask.getStatus(), null, null, null);
+            }
+            return new SubtaskFootprint(subTask.getStatus(), subTask.getStartTime(), subTask.getEndTime(),
+                    subTask.getDuration());
+        }
+
+        boolean isScheduled() {
+            return startTime != null;
+        }
+    }
+
     public static EpicTask fromString(String str) {
         TaskParams taskParams = Task.taskParamsFromString(str);
         return new EpicTask(taskParams.name(), taskParams.description(), taskParams.id());
@@ -20,15 +47,65 @@ public class EpicTask extends Task {
     ) {
         super(name, description, id, TaskStatus.NEW, null, null);
         type = TaskType.EPIC;
-        this.subtaskIds = new ArrayList<>();
     }
 
     public SubTask addSubtask(SubTask subTask) {
         subtaskIds.add(subTask.getId());
+        include(subTask.getId(), SubtaskFootprint.of(subTask));
+        refreshAggregates();
         return subTask;
     }
 
-    public List<Integer> getSubtaskIds() {
+    public void addSubtasks(Collection<SubTask> subTasks) {
+        for (var subTask : subTasks) {
+            subtaskIds.add(subTask.getId());
+            include(subTask.getId(), SubtaskFootprint.of(subTask));
+        }
+        refreshAggregates();
+    }
+
+    public SubTask updateSubtask(SubTask subTask) {
+        exclude(subTask.getId());
+        include(subTask.getId(), SubtaskFootprint.of(subTask));
+        refreshAggregates();
+        return subTask;
+    }
+
+    public void removeSubtask(int subTaskId) {
+        if (exclude(subTaskId)) {
+            subtaskIds.remove(subTaskId);
+            refreshAggregates();
+        }
+    }
+
+    public void clearSubtasks() {
+        subtaskIds.clear();
+        footprints.clear();
+        statusCounters.clear();
+        startTimes.clear();
+        endTimes.clear();
+        scheduledDuration = Duration.ZERO;
+        refreshAggregates();
+    }
+
+    /**
+     * Копия эпика для чтения без блокировки: список подзадач и агрегаты копируются, учёт подзадач
+     * для пересчёта агрегатов не переносится.
+     */
+    public EpicTask snapshot() {
+        var copy = new EpicTask(name, description, id);
+        copy.subtaskIds.addAll(subtaskIds);
+        copy.status = status;
+        copy.startTime = startTime;
+        copy.duration = duration;
+        copy.endTime = endTime;
+        return copy;
+    }
+
+    /**
+     * id подзадач в порядке добавления.
+     */
+    public Set<Integer> getSubtaskIds() {
         return subtaskIds;
     }
 
@@ -40,4 +117,56 @@ public class EpicTask extends Task {
     public Instant getEndTime() {
         return endTime;
     }
-}
\ No newline at end of file
+
+    private void include(int subTaskId, SubtaskFootprint footprint) {
+        footprints.put(subTaskId, footprint);
+        if (footprint.status() != null) {
+            statusCounters.merge(footprint.status(), 1, Integer::sum);
+        }
+        if (footprint.isScheduled()) {
+            startTimes.merge(footprint.startTime(), 1, Integer::sum);
+            endTimes.merge(footprint.endTime(), 1, Integer::sum);
+            scheduledDuration = scheduledDuration.plus(footprint.duration());
+        }
+    }
+
+    private boolean exclude(int subTaskId) {
+        var footprint = footprints.remove(subTaskId);
+        if (footprint == null) {
+            return false;
+        }
+        if (footprint.status() != null) {
+            decrement(statusCounters, footprint.status());
+        }
+        if (footprint.isScheduled()) {
+            decrement(startTimes, footprint.startTime());
+            decrement(endTimes, footprint.endTime());
+            scheduledDuration = scheduledDuration.minus(footprint.duration());
+        }
+        return true;
+    }
+
+    private static <K> void decrement(Map<K, Integer> counters, K key) {
+        counters.computeIfPresent(key, (k, count) -> count == 1 ? null : count - 1);
+    }
+
+    private void refreshAggregates() {
+        status = aggregateStatus();
+        duration = scheduledDuration;
+        startTime = startTimes.isEmpty() ? null : startTimes.firstKey();
+        endTime = endTimes.isEmpty() ? null : endTimes.lastKey();
+    }
+
+    private TaskStatus aggregateStatus() {
+        int total = footprints.size();
+        if (total == 0) {
+            return TaskStatus.NEW;
+        }
+        for (TaskStatus candidate : TaskStatus.values()) {
+            if (statusCounters.getOrDefault(candidate, 0) == total) {
+                return candidate;
+            }
+        }
+        return TaskStatus.IN_PROGRESS;
+    }
+}
@@ -25,9 +25,4 @@ public class SubTask extends Task {
     public void setEpicTaskId(Integer epicTaskId) {
         this.epicTaskId = epicTaskId;
     }
-
-    @Override
-    public String toString() {
-        return super.toString() + epicTaskId;
-    }
 }
@@ -2,17 +2,10 @@ package ru.keeponthewave.tasktracker.model;
 
 import java.time.Duration;
 import java.time.Instant;
-import java.util.InputMismatchException;
 import java.util.Objects;
-import java.util.regex.Matcher;
-import java.util.regex.Pattern;
 
 public class Task {
     public static final String SERIALIZATION_FORMAT = "id,type,name,status,description,startTime,duration,epic";
-    private static final Pattern DESERIALIZE_PATTERN = Pattern.compile("(?<id>\\d*),(?<type>\\w*),(?<name>.*)"
-            + ",(?<status>\\w*),(?<description>.*)"
-            + ",(?<startTs>\\d*),(?<durationMinutes>\\d*),(?<epicId>\\d*)"
-    );
 
     protected String name;
     protected String description;
@@ -105,29 +98,11 @@ public class Task {
 
     @Override
     public String toString() {
-        return String.format("%s,%s,%s,%s,%s,%s,%s,", id, type, name, status, description,
-                startTime == null ? "" : startTime.toEpochMilli(),
-                duration == null ? "" : duration.toMinutes());
+        return TaskCsvCodec.encode(this);
     }
 
     public static TaskParams taskParamsFromString(String string) {
-        Matcher matcher = DESERIALIZE_PATTERN.matcher(string);
-        if (matcher.find()) {
-            var startTs = matcher.group("startTs");
-            var durationMinutes = matcher.group("durationMinutes");
-
-            return new TaskParams(
-                    Integer.parseInt(matcher.group("id")),
-                    TaskType.valueOf(matcher.group("type")),
-                    matcher.group("name"),
-                    TaskStatus.valueOf(matcher.group("status")),
-                    matcher.group("description"),
-                    !matcher.group("epicId").isBlank() ? Integer.parseInt(matcher.group("epicId")) : null,
-                    !Objects.equals(startTs, "") ? Instant.ofEpochMilli(Long.parseLong(startTs)) : null,
-                    !Objects.equals(durationMinutes, "") ? Duration.ofMinutes(Long.parseLong(durationMinutes)) : null
-            );
-        }
-        throw new InputMismatchException("Некорректный формат строки");
+        return TaskCsvCodec.parse(string);
     }
 
     public record TaskParams(Integer id, TaskType type, String name, TaskStatus status, String description,
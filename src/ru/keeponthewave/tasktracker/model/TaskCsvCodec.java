@@ -0,0 +1,324 @@
+package ru.keeponthewave.tasktracker.model;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.InputMismatchException;
+
+/**
+ * Однопроходный кодек строк формата {@link Task#SERIALIZATION_FORMAT}.
+ * <p>
+ * Имя и описание, содержащие запятую, кавычку или перевод строки, записываются в кавычках: кавычка внутри
+ * удваивается, а {@code \} и переводы строк экранируются обратной косой чертой, поэтому запись всегда
+ * занимает одну физическую строку. Строки старого формата, где запятые в тексте не экранировались,
+ * по-прежнему читаются.
+ */
+public final class TaskCsvCodec {
+    private static final TaskType[] TYPES = TaskType.values();
+    private static final TaskStatus[] STATUSES = TaskStatus.values();
+    private static final int FIELD_COUNT = 8;
+
+    private TaskCsvCodec() {
+    }
+
+    public static String encode(Task task) {
+        return append(new StringBuilder(64), task).toString();
+    }
+
+    public static StringBuilder append(StringBuilder out, Task task) {
+        out.append(task.getId()).append(',').append(task.getType()).append(',');
+        appendText(out, task.getName()).append(',').append(task.getStatus()).append(',');
+        appendText(out, task.getDescription()).append(',');
+        if (task.getStartTime() != null) {
+            out.append(task.getStartTime().toEpochMilli());
+        }
+        out.append(',');
+        if (task.getDuration() != null) {
+            out.append(task.getDuration().toMinutes());
+        }
+        out.append(',');
+        if (task instanceof SubTask subTask) {
+            out.append(subTask.getEpicTaskId());
+        }
+        return out;
+    }
+
+    public static Task decode(CharSequence line) {
+        return decode(line, 0);
+    }
+
+    public static Task decode(CharSequence line, int from) {
+        Task.TaskParams params = parse(line, from);
+        return switch (params.type()) {
+            case TASK -> new Task(params.name(), params.description(), params.id(), params.status(),
+                    params.startTime(), params.duration());
+            case EPIC -> new EpicTask(params.name(), params.description(), params.id());
+            case SUBTASK -> new SubTask(params.name(), params.description(), params.id(), params.status(),
+                    params.epicId(), params.startTime(), params.duration());
+        };
+    }
+
+    public static Task.TaskParams parse(CharSequence line) {
+        return parse(line, 0);
+    }
+
+    public static Task.TaskParams parse(CharSequence line, int from) {
+        try {
+            return parseStrict(line, from);
+        } catch (RuntimeException e) {
+            if (!isLegacyShape(line, from)) {
+                throw new InputMismatchException("Некорректный формат строки: " + e.getMessage());
+            }
+            return parseLegacy(line, from);
+        }
+    }
+
+    private static StringBuilder appendText(StringBuilder out, String text) {
+        if (text == null || !needsQuoting(text)) {
+            return out.append(text);
+        }
+        out.append('"');
+        for (int i = 0; i < text.length(); i++) {
+            char c = text.charAt(i);
+            switch (c) {
+                case '"' -> out.append("\"\"");
+                case '\\' -> out.append("\\\\");
+                case '\n' -> out.append("\\n");
+                case '\r' -> out.append("\\r");
+                default -> out.append(c);
+            }
+        }
+        return out.append('"');
+    }
+
+    private static boolean needsQuoting(String text) {
+        if (!text.isEmpty() && text.charAt(0) == '"') {
+            return true;
+        }
+        for (int i = 0; i < text.length(); i++) {
+            char c = text.charAt(i);
+            if (c == ',' || c == '\n' || c == '\r') {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static Task.TaskParams parseStrict(CharSequence line, int from) {
+        var fields = new FieldReader(line, from);
+        int id = fields.nextInt();
+        TaskType type = fields.nextEnum(TYPES);
+        String name = fields.nextText();
+        TaskStatus status = fields.nextEnum(STATUSES);
+        String description = fields.nextText();
+        Instant startTime = fields.hasValue() ? Instant.ofEpochMilli(fields.nextLong()) : fields.skip(null);
+        Duration duration = fields.hasValue() ? Duration.ofMinutes(fields.nextLong()) : fields.skip(null);
+        Integer epicId = fields.nextLastInteger();
+        return new Task.TaskParams(id, type, name, status, description, epicId, startTime, duration);
+    }
+
+    // Строка старого формата без запятых в тексте читается строгим разбором, поэтому старый разбор нужен,
+    // только если полей больше FIELD_COUNT и ни одно поле не начинается с кавычки.
+    private static boolean isLegacyShape(CharSequence line, int from) {
+        int separators = 0;
+        for (int i = from; i < line.length(); i++) {
+            char c = line.charAt(i);
+            if (c == ',') {
+                separators++;
+            } else if (c == '"' && (i == from || line.charAt(i - 1) == ',')) {
+                return false;
+            }
+        }
+        return separators >= FIELD_COUNT;
+    }
+
+    // Старый формат писал имя и описание без экранирования: id и тип читаются слева, числовые поля справа,
+    // а статусом считается самый правый валидный статус между ними.
+    private static Task.TaskParams parseLegacy(CharSequence line, int from) {
+        int idEnd = indexOf(line, ',', from, line.length());
+        int typeEnd = idEnd < 0 ? -1 : indexOf(line, ',', idEnd + 1, line.length());
+        int epicStart = lastIndexOf(line, ',', line.length() - 1, typeEnd) + 1;
+        int durationStart = lastIndexOf(line, ',', epicStart - 2, typeEnd) + 1;
+        int startStart = lastIndexOf(line, ',', durationStart - 2, typeEnd) + 1;
+        if (typeEnd < 0 || startStart <= typeEnd + 1) {
+            throw new InputMismatchException("Некорректный формат строки");
+        }
+
+        int middleEnd = startStart - 1;
+        for (int statusEnd = lastIndexOf(line, ',', middleEnd - 1, typeEnd);
+             statusEnd > typeEnd;
+             statusEnd = lastIndexOf(line, ',', statusEnd - 1, typeEnd)) {
+            int statusStart = lastIndexOf(line, ',', statusEnd - 1, typeEnd);
+            if (statusStart <= typeEnd) {
+                break;
+            }
+            TaskStatus status = findEnum(STATUSES, line, statusStart + 1, statusEnd);
+            if (status == null) {
+                continue;
+            }
+            try {
+                return new Task.TaskParams(
+                        Integer.parseInt(line, from, idEnd, 10),
+                        TaskType.valueOf(line.subSequence(idEnd + 1, typeEnd).toString()),
+                        line.subSequence(typeEnd + 1, statusStart).toString(),
+                        status,
+                        line.subSequence(statusEnd + 1, middleEnd).toString(),
+                        parseNullableInt(line, epicStart, line.length()),
+                        startStart == durationStart - 1 ? null
+                                : Instant.ofEpochMilli(Long.parseLong(line, startStart, durationStart - 1, 10)),
+                        durationStart == epicStart - 1 ? null
+                                : Duration.ofMinutes(Long.parseLong(line, durationStart, epicStart - 1, 10))
+                );
+            } catch (IllegalArgumentException | IndexOutOfBoundsException e) {
+                throw new InputMismatchException("Некорректный формат строки");
+            }
+        }
+        throw new InputMismatchException("Некорректный формат строки");
+    }
+
+    private static Integer parseNullableInt(CharSequence line, int start, int end) {
+        if (start == end || regionEquals(line, start, end, "null")) {
+            return null;
+        }
+        return Integer.parseInt(line, start, end, 10);
+    }
+
+    private static <E extends Enum<E>> E findEnum(E[] values, CharSequence line, int start, int end) {
+        for (E value : values) {
+            if (regionEquals(line, start, end, value.name())) {
+                return value;
+            }
+        }
+        return null;
+    }
+
+    private static boolean regionEquals(CharSequence line, int start, int end, String expected) {
+        if (end - start != expected.length()) {
+            return false;
+        }
+        for (int i = 0; i < expected.length(); i++) {
+            if (line.charAt(start + i) != expected.charAt(i)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static int indexOf(CharSequence line, char c, int from, int to) {
+        for (int i = from; i < to; i++) {
+            if (line.charAt(i) == c) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    private static int lastIndexOf(CharSequence line, char c, int from, int floor) {
+        for (int i = from; i > floor; i--) {
+            if (line.charAt(i) == c) {
+                return i;
+            }
+        }
+        return floor;
+    }
+
+    private static final class FieldReader {
+        private final CharSequence line;
+        private int pos;
+
+        FieldReader(CharSequence line, int from) {
+            this.line = line;
+            this.pos = from;
+        }
+
+        boolean hasValue() {
+            return pos < line.length() && line.charAt(pos) != ',';
+        }
+
+        <T> T skip(T value) {
+            expectSeparator(pos);
+            return value;
+        }
+
+        int nextInt() {
+            int end = fieldEnd();
+            int value = Integer.parseInt(line, pos, end, 10);
+            expectSeparator(end);
+            return value;
+        }
+
+        long nextLong() {
+            int end = fieldEnd();
+            long value = Long.parseLong(line, pos, end, 10);
+            expectSeparator(end);
+            return value;
+        }
+
+        <E extends Enum<E>> E nextEnum(E[] values) {
+            int end = fieldEnd();
+            E value = findEnum(values, line, pos, end);
+            if (value == null) {
+                throw new IllegalArgumentException("Неизвестное значение " + line.subSequence(pos, end));
+            }
+            expectSeparator(end);
+            return value;
+        }
+
+        String nextText() {
+            if (pos >= line.length() || line.charAt(pos) != '"') {
+                int end = fieldEnd();
+                String value = line.subSequence(pos, end).toString();
+                expectSeparator(end);
+                return value;
+            }
+
+            var value = new StringBuilder();
+            int i = pos + 1;
+            while (true) {
+                if (i >= line.length()) {
+                    throw new IllegalArgumentException("Незакрытая кавычка");
+                }
+                char c = line.charAt(i++);
+                if (c == '"') {
+                    if (i < line.length() && line.charAt(i) == '"') {
+                        value.append('"');
+                        i++;
+                        continue;
+                    }
+                    break;
+                }
+                if (c == '\\' && i < line.length()) {
+                    char escaped = line.charAt(i++);
+                    value.append(switch (escaped) {
+                        case 'n' -> '\n';
+                        case 'r' -> '\r';
+                        default -> escaped;
+                    });
+                    continue;
+                }
+                value.append(c);
+            }
+            expectSeparator(i);
+            return value.toString();
+        }
+
+        Integer nextLastInteger() {
+            int end = line.length();
+            if (indexOf(line, ',', pos, end) >= 0) {
+                throw new IllegalArgumentException("Лишние поля в строке");
+            }
+            return parseNullableInt(line, pos, end);
+        }
+
+        private int fieldEnd() {
+            int end = indexOf(line, ',', pos, line.length());
+            return end < 0 ? line.length() : end;
+        }
+
+        private void expectSeparator(int end) {
+            if (end >= line.length() || line.charAt(end) != ',') {
+                throw new IllegalArgumentException("Недостаточно полей в строке");
+            }
+            pos = end + 1;
+        }
+    }
+}
@@ -0,0 +1,71 @@
+package ru.keeponthewave.tasktracker.controllers;
+
+import com.google.gson.reflect.TypeToken;
+import org.junit.jupiter.api.Test;
+import ru.keeponthewave.tasktracker.dto.BatchDto;
+import ru.keeponthewave.tasktracker.dto.BatchItemDto;
+import ru.keeponthewave.tasktracker.dto.BatchItemResultDto;
+import ru.keeponthewave.tasktracker.managers.BatchOperation;
+import ru.keeponthewave.tasktracker.model.TaskStatus;
+import ru.keeponthewave.tasktracker.model.TaskType;
+
+import java.io.IOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class BatchControllerTest extends ControllerTest {
+    @Test
+    public void shouldCreateEpicWithSubtasksInOneRequest() throws IOException, InterruptedException {
+        var now = Instant.now();
+        var response = sendBatch(new BatchDto(List.of(
+                new BatchItemDto(BatchOperation.Action.CREATE, TaskType.EPIC, null, "epic", "epic descr",
+                        null, null, null, null, null),
+                new BatchItemDto(BatchOperation.Action.CREATE, TaskType.SUBTASK, null, "subtask1", "descr",
+                        TaskStatus.NEW, null, 0, now, Duration.ofMinutes(5)),
+                new BatchItemDto(BatchOperation.Action.CREATE, TaskType.SUBTASK, null, "subtask2", "descr",
+                        TaskStatus.DONE, null, 0, now.plus(Duration.ofMinutes(10)), Duration.ofMinutes(5))
+        )));
+        assertEquals(200, response.statusCode());
+
+        List<BatchItemResultDto> results = gson.fromJson(response.body(),
+                new TypeToken<List<BatchItemResultDto>>() {}.getType());
+        assertEquals(3, results.size());
+        var epicId = results.getFirst().task().id();
+        assertEquals(epicId, results.get(1).task().epicId());
+        assertEquals(epicId, results.get(2).task().epicId());
+        assertEquals(2, manager.getEpicSubTasks(manager.getEpicTaskById(epicId)).size());
+        assertEquals(TaskStatus.IN_PROGRESS, manager.getEpicTaskById(epicId).getStatus());
+    }
+
+    @Test
+    public void shouldRejectWholeBatchWhenTasksOverlap() throws IOException, InterruptedException {
+        var now = Instant.now();
+        var response = sendBatch(new BatchDto(List.of(
+                new BatchItemDto(BatchOperation.Action.CREATE, TaskType.TASK, null, "task1", "descr",
+                        TaskStatus.NEW, null, null, now, Duration.ofMinutes(10)),
+                new BatchItemDto(BatchOperation.Action.CREATE, TaskType.TASK, null, "task2", "descr",
+                        TaskStatus.NEW, null, null, now.plus(Duration.ofMinutes(5)), Duration.ofMinutes(10))
+        )));
+
+        assertEquals(406, response.statusCode());
+        assertTrue(response.body().contains("#1"));
+        assertTrue(manager.getAllTasks().isEmpty());
+    }
+
+    private HttpResponse<String> sendBatch(BatchDto batch) throws IOException, InterruptedException {
+        try (HttpClient client = HttpClient.newHttpClient()) {
+            HttpRequest request = HttpRequest.newBuilder()
+                    .uri(URI.create(String.format("http://localhost:%d/batch", PORT)))
+                    .POST(HttpRequest.BodyPublishers.ofString(gson.toJson(batch)))
+                    .build();
+            return client.send(request, HttpResponse.BodyHandlers.ofString());
+        }
+    }
+}
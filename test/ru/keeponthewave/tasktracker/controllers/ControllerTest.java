@@ -6,6 +6,8 @@ import org.junit.jupiter.api.AfterAll;
 import org.junit.jupiter.api.BeforeAll;
 import org.junit.jupiter.api.BeforeEach;
 import ru.keeponthewave.tasktracker.HttpTaskServer;
+import ru.keeponthewave.tasktracker.http.ExecutorMode;
+import ru.keeponthewave.tasktracker.http.ResponseMode;
 import ru.keeponthewave.tasktracker.lib.gson.adapters.DurationTypeAdapter;
 import ru.keeponthewave.tasktracker.lib.gson.adapters.InstantTypeAdapter;
 import ru.keeponthewave.tasktracker.managers.*;
@@ -18,11 +20,13 @@ import java.util.ArrayList;
 
 abstract class ControllerTest {
     static final int PORT = 8080;
-    static TaskManager manager = Managers.getDefault();
+    static TaskManager manager = new ConcurrentTaskManager(Managers.getDefaultHistory());
     static HttpTaskServer taskServer;
     static Gson gson;
     @BeforeAll
     public static void prepareHttpServer() throws IOException {
+        // Без TCP_NODELAY каждый потоковый ответ ждёт отложенного ACK, и серии запросов идут медленно.
+        System.setProperty("sun.net.httpserver.nodelay", "true");
         var httpServer = HttpServer.create(new InetSocketAddress(PORT), 0);
         var taskServer = new HttpTaskServer(httpServer);
 
@@ -38,9 +42,13 @@ abstract class ControllerTest {
                     add(EpicsController.class);
                     add(HistoryController.class);
                     add(PriorityController.class);
+                    add(BatchController.class);
                 }}
         );
 
+        taskServer.configureExecutor(ExecutorMode.FIXED_POOL);
+        taskServer.configureResponseMode(ResponseMode.STREAMING);
+        taskServer.configureResponseCache(true);
         taskServer.configureServices(ioc -> ioc.register(TaskManager.class, manager));
         ControllerTest.taskServer = taskServer;
         gson = taskServer.getGson();
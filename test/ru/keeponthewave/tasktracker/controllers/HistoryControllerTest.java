@@ -45,17 +45,41 @@ class HistoryControllerTest extends ControllerTest {
         assertArrayEquals(expectedList, actualList);
     }
 
+    @Test
+    public void shouldGetLastHistoryEntries() throws IOException, InterruptedException {
+        var first = new Task("first", "descr", null, TaskStatus.NEW, null, null);
+        var second = new Task("second", "descr", null, TaskStatus.NEW, null, null);
+        manager.createTask(first);
+        manager.createTask(second);
+        manager.getTaskById(first.getId());
+        manager.getTaskById(second.getId());
+
+        List<UnknownTaskDto> history = fetchHistory("?limit=1");
+        assertEquals(1, history.size());
+        assertEquals(second.getId(), history.getFirst().id());
+        assertEquals(400, sendGet("/history?limit=abc").statusCode());
+        assertEquals(400, sendGet("/history?limit=-1").statusCode());
+    }
+
     private List<UnknownTaskDto> fetchHistory() throws IOException, InterruptedException {
+        return fetchHistory("");
+    }
+
+    private List<UnknownTaskDto> fetchHistory(String query) throws IOException, InterruptedException {
+        HttpResponse<String> response = sendGet("/history" + query);
+        return gson.fromJson(response.body(), new TypeToken<List<UnknownTaskDto>>() {}.getType());
+    }
+
+    private HttpResponse<String> sendGet(String path) throws IOException, InterruptedException {
         try (HttpClient client = HttpClient.newHttpClient()) {
-            URI url = URI.create(String.format("http://localhost:%d/history", PORT));
+            URI url = URI.create(String.format("http://localhost:%d%s", PORT, path));
             HttpRequest request = HttpRequest.newBuilder()
                     .uri(url)
                     .GET()
                     .build();
 
 
-            HttpResponse<String> response = client.send(request, HttpResponse.BodyHandlers.ofString());
-            return gson.fromJson(response.body(), new TypeToken<List<UnknownTaskDto>>() {}.getType());
+            return client.send(request, HttpResponse.BodyHandlers.ofString());
         }
     }
 }
@@ -2,6 +2,7 @@ package ru.keeponthewave.tasktracker.controllers;
 
 import com.google.gson.reflect.TypeToken;
 import org.junit.jupiter.api.Test;
+import ru.keeponthewave.tasktracker.dto.PageDto;
 import ru.keeponthewave.tasktracker.dto.UnknownTaskDto;
 import ru.keeponthewave.tasktracker.model.EpicTask;
 import ru.keeponthewave.tasktracker.model.SubTask;
@@ -48,9 +49,59 @@ class PriorityControllerTest extends ControllerTest {
         assertArrayEquals(expectedList, actualList);
     }
 
+    @Test
+    public void shouldGetPrioritizedTasksInTimeRange() throws IOException, InterruptedException {
+        var start = Instant.parse("2024-01-01T00:00:00Z");
+        for (int day = 0; day < 14; day++) {
+            manager.createTask(new Task("task" + day, "descr", null, TaskStatus.NEW,
+                    start.plus(Duration.ofDays(day)), Duration.ofHours(1)));
+        }
+
+        var week = fetchPrioritizedList(String.format("?from=%s&to=%s", start.plus(Duration.ofDays(7)),
+                start.plus(Duration.ofDays(14))));
+        assertEquals(7, week.size());
+        assertEquals("task7", week.getFirst().name());
+        assertEquals("task13", week.getLast().name());
+
+        var next = fetchPrioritizedList(String.format("?from=%s&limit=2", start.plus(Duration.ofMinutes(30))));
+        assertEquals(List.of("task0", "task1"), next.stream().map(UnknownTaskDto::name).toList());
+
+        var limited = fetchPrioritizedList(String.format("?from=%s&to=%s&limit=2", start,
+                start.plus(Duration.ofDays(14))));
+        assertEquals(2, limited.size());
+
+        try (HttpClient client = HttpClient.newHttpClient()) {
+            HttpRequest request = HttpRequest.newBuilder()
+                    .uri(URI.create(String.format("http://localhost:%d/prioritized?from=yesterday", PORT)))
+                    .GET()
+                    .build();
+            assertEquals(400, client.send(request, HttpResponse.BodyHandlers.ofString()).statusCode());
+        }
+    }
+
+    @Test
+    public void shouldNotTruncateBoundedRangeWithoutLimit() throws IOException, InterruptedException {
+        var start = Instant.parse("2024-01-01T00:00:00Z");
+        int count = PageDto.DEFAULT_LIMIT + 20;
+        for (int i = 0; i < count; i++) {
+            manager.createTask(new Task("task" + i, "descr", null, TaskStatus.NEW,
+                    start.plus(Duration.ofHours(i)), Duration.ofMinutes(30)));
+        }
+
+        var all = fetchPrioritizedList(String.format("?from=%s&to=%s", start, start.plus(Duration.ofHours(count))));
+        assertEquals(count, all.size());
+
+        var open = fetchPrioritizedList(String.format("?from=%s", start));
+        assertEquals(PageDto.DEFAULT_LIMIT, open.size());
+    }
+
     private List<UnknownTaskDto> fetchPrioritizedList() throws IOException, InterruptedException {
+        return fetchPrioritizedList("");
+    }
+
+    private List<UnknownTaskDto> fetchPrioritizedList(String query) throws IOException, InterruptedException {
         try (HttpClient client = HttpClient.newHttpClient()) {
-            URI url = URI.create(String.format("http://localhost:%d/prioritized", PORT));
+            URI url = URI.create(String.format("http://localhost:%d/prioritized%s", PORT, query));
             HttpRequest request = HttpRequest.newBuilder()
                     .uri(url)
                     .GET()
@@ -1,8 +1,12 @@
 package ru.keeponthewave.tasktracker.controllers;
 
+import com.google.gson.reflect.TypeToken;
 import org.junit.jupiter.api.Test;
+import ru.keeponthewave.tasktracker.dto.PageDto;
 import ru.keeponthewave.tasktracker.dto.TaskDto;
+import ru.keeponthewave.tasktracker.http.ApiController;
 import ru.keeponthewave.tasktracker.http.HttpStatus;
+import ru.keeponthewave.tasktracker.model.EpicTask;
 import ru.keeponthewave.tasktracker.model.Task;
 import ru.keeponthewave.tasktracker.model.TaskStatus;
 
@@ -14,9 +18,12 @@ import java.net.http.HttpResponse;
 import java.time.Duration;
 import java.time.Instant;
 import java.util.Collection;
+import java.util.List;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
 import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
 
 class TasksControllerTest extends ControllerTest {
     @Test
@@ -150,4 +157,165 @@ class TasksControllerTest extends ControllerTest {
             assertEquals(0, tasksFromManager.size(), "Некорректное количество задач");
         }
     }
+
+    @Test
+    public void shouldReturnBadRequestWhenIdIsNotNumber() throws IOException, InterruptedException {
+        try (HttpClient client = HttpClient.newHttpClient()) {
+            URI url = URI.create(String.format("http://localhost:%d/tasks/abc", PORT));
+            HttpRequest request = HttpRequest.newBuilder()
+                    .uri(url)
+                    .GET()
+                    .build();
+
+            HttpResponse<String> response = client.send(request, HttpResponse.BodyHandlers.ofString());
+
+            assertEquals(HttpStatus.BAD_REQUEST.getCode(), response.statusCode());
+        }
+    }
+
+    @Test
+    public void shouldReturnNotImplementedWhenRouteNotFound() throws IOException, InterruptedException {
+        try (HttpClient client = HttpClient.newHttpClient()) {
+            URI url = URI.create(String.format("http://localhost:%d/tasks/1/unknown", PORT));
+            HttpRequest request = HttpRequest.newBuilder()
+                    .uri(url)
+                    .GET()
+                    .build();
+
+            HttpResponse<String> response = client.send(request, HttpResponse.BodyHandlers.ofString());
+
+            assertEquals(HttpStatus.NOT_IMPLEMENTED.getCode(), response.statusCode());
+        }
+    }
+
+    @Test
+    public void shouldStreamUncachedResponse() throws IOException, InterruptedException {
+        var task = manager.createTask(new Task("task, \"quoted\"", "task descr", null, TaskStatus.NEW, null, null));
+
+        try (HttpClient client = HttpClient.newHttpClient()) {
+            HttpRequest request = HttpRequest.newBuilder()
+                    .uri(URI.create(String.format("http://localhost:%d/tasks/%d", PORT, task.getId())))
+                    .GET()
+                    .build();
+            HttpResponse<String> response = client.send(request, HttpResponse.BodyHandlers.ofString());
+
+            assertEquals(HttpStatus.OK.getCode(), response.statusCode());
+            assertEquals("chunked", response.headers().firstValue("Transfer-Encoding").orElse(null));
+            assertEquals(task.getName(), gson.fromJson(response.body(), TaskDto.class).name());
+        }
+    }
+
+    @Test
+    public void shouldServeCachedListUntilTasksChange() throws IOException, InterruptedException {
+        manager.createTask(new Task("first", "task descr", null, TaskStatus.NEW, null, null));
+
+        try (HttpClient client = HttpClient.newHttpClient()) {
+            HttpRequest request = HttpRequest.newBuilder()
+                    .uri(URI.create(String.format("http://localhost:%d/tasks", PORT)))
+                    .GET()
+                    .build();
+
+            HttpResponse<String> miss = client.send(request, HttpResponse.BodyHandlers.ofString());
+            HttpResponse<String> hit = client.send(request, HttpResponse.BodyHandlers.ofString());
+            assertEquals("MISS", miss.headers().firstValue(ApiController.CACHE_STATUS_HEADER).orElse(null));
+            assertEquals("chunked", miss.headers().firstValue("Transfer-Encoding").orElse(null));
+            assertEquals("HIT", hit.headers().firstValue(ApiController.CACHE_STATUS_HEADER).orElse(null));
+            assertEquals(miss.body(), hit.body());
+
+            manager.createEpicTask(new EpicTask("epic", "epic descr", null));
+            HttpResponse<String> afterEpic = client.send(request, HttpResponse.BodyHandlers.ofString());
+            assertEquals("HIT", afterEpic.headers().firstValue(ApiController.CACHE_STATUS_HEADER).orElse(null));
+
+            manager.createTask(new Task("second", "task descr", null, TaskStatus.NEW, null, null));
+            HttpResponse<String> afterTask = client.send(request, HttpResponse.BodyHandlers.ofString());
+            assertEquals("MISS", afterTask.headers().firstValue(ApiController.CACHE_STATUS_HEADER).orElse(null));
+            List<TaskDto> tasks = gson.fromJson(afterTask.body(), new TypeToken<List<TaskDto>>() {}.getType());
+            assertEquals(2, tasks.size());
+        }
+    }
+
+    @Test
+    public void shouldEvictLeastRecentlyUsedCachedResponse() throws IOException, InterruptedException {
+        manager.createTask(new Task("first", "task descr", null, TaskStatus.NEW, null, null));
+
+        try (HttpClient client = HttpClient.newHttpClient()) {
+            for (int i = 0; i < 256; i++) {
+                cacheStatus(client, "/tasks?page=" + i);
+            }
+            assertEquals("HIT", cacheStatus(client, "/tasks?page=0"));
+            assertEquals("MISS", cacheStatus(client, "/tasks?page=256"));
+            assertEquals("HIT", cacheStatus(client, "/tasks?page=256"));
+            assertEquals("HIT", cacheStatus(client, "/tasks?page=0"));
+            assertEquals("MISS", cacheStatus(client, "/tasks?page=1"));
+        }
+    }
+
+    private static String cacheStatus(HttpClient client, String path) throws IOException, InterruptedException {
+        HttpRequest request = HttpRequest.newBuilder()
+                .uri(URI.create(String.format("http://localhost:%d%s", PORT, path)))
+                .GET()
+                .build();
+        HttpResponse<String> response = client.send(request, HttpResponse.BodyHandlers.ofString());
+        assertEquals(HttpStatus.OK.getCode(), response.statusCode());
+        return response.headers().firstValue(ApiController.CACHE_STATUS_HEADER).orElse(null);
+    }
+
+    @Test
+    public void shouldAnswerNotModifiedWhenTasksUnchanged() throws IOException, InterruptedException {
+        manager.createTask(new Task("first", "task descr", null, TaskStatus.NEW, null, null));
+        URI url = URI.create(String.format("http://localhost:%d/tasks", PORT));
+
+        try (HttpClient client = HttpClient.newHttpClient()) {
+            HttpResponse<String> full = client.send(HttpRequest.newBuilder().uri(url).GET().build(),
+                    HttpResponse.BodyHandlers.ofString());
+            String etag = full.headers().firstValue("ETag").orElse(null);
+            assertNotNull(etag);
+            assertNotNull(full.headers().firstValue("Last-Modified").orElse(null));
+
+            HttpRequest conditional = HttpRequest.newBuilder().uri(url).header("If-None-Match", etag).GET().build();
+            HttpResponse<String> notModified = client.send(conditional, HttpResponse.BodyHandlers.ofString());
+            assertEquals(HttpStatus.NOT_MODIFIED.getCode(), notModified.statusCode());
+            assertEquals(etag, notModified.headers().firstValue("ETag").orElse(null));
+
+            manager.createTask(new Task("second", "task descr", null, TaskStatus.NEW, null, null));
+            HttpResponse<String> changed = client.send(conditional, HttpResponse.BodyHandlers.ofString());
+            assertEquals(HttpStatus.OK.getCode(), changed.statusCode());
+            assertNotEquals(etag, changed.headers().firstValue("ETag").orElse(null));
+        }
+    }
+
+    @Test
+    public void shouldPageTasksByCursor() throws IOException, InterruptedException {
+        for (int i = 0; i < 5; i++) {
+            manager.createTask(new Task("task " + i, "task descr", null, TaskStatus.NEW, null, null));
+        }
+        var ids = manager.getAllTasks().stream().map(Task::getId).sorted().toList();
+
+        try (HttpClient client = HttpClient.newHttpClient()) {
+            PageDto<TaskDto> first = fetchPage(client, "/tasks?limit=2");
+            assertEquals(ids.subList(0, 2), first.items().stream().map(TaskDto::id).toList());
+            assertEquals(ids.get(1), first.nextCursor());
+
+            PageDto<TaskDto> last = fetchPage(client, "/tasks?limit=3&cursor=" + first.nextCursor());
+            assertEquals(ids.subList(2, 5), last.items().stream().map(TaskDto::id).toList());
+            assertNull(last.nextCursor());
+
+            HttpRequest request = HttpRequest.newBuilder()
+                    .uri(URI.create(String.format("http://localhost:%d/tasks?limit=0", PORT)))
+                    .GET()
+                    .build();
+            HttpResponse<String> response = client.send(request, HttpResponse.BodyHandlers.ofString());
+            assertEquals(HttpStatus.BAD_REQUEST.getCode(), response.statusCode());
+        }
+    }
+
+    private PageDto<TaskDto> fetchPage(HttpClient client, String path) throws IOException, InterruptedException {
+        HttpRequest request = HttpRequest.newBuilder()
+                .uri(URI.create(String.format("http://localhost:%d%s", PORT, path)))
+                .GET()
+                .build();
+        HttpResponse<String> response = client.send(request, HttpResponse.BodyHandlers.ofString());
+        assertEquals(HttpStatus.OK.getCode(), response.statusCode());
+        return gson.fromJson(response.body(), new TypeToken<PageDto<TaskDto>>() {}.getType());
+    }
 }
@@ -0,0 +1,83 @@
+package ru.keeponthewave.tasktracker.managers;
+
+import org.junit.jupiter.api.Test;
+import ru.keeponthewave.tasktracker.model.Task;
+import ru.keeponthewave.tasktracker.model.TaskStatus;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ConcurrentHistoryManagerTest {
+    private static final int THREADS = 8;
+
+    @Test
+    void shouldKeepViewOrderAndMoveRepeatedViewToEnd() {
+        var historyManager = new ConcurrentHistoryManager();
+        for (int id : new int[] {1, 2, 3, 1}) {
+            historyManager.add(task(id));
+        }
+
+        assertEquals(List.of(2, 3, 1), ids(historyManager.getHistory()));
+        assertEquals(List.of(3, 1), ids(historyManager.getHistory(2)));
+
+        historyManager.remove(3);
+        assertEquals(List.of(2, 1), ids(historyManager.getHistory()));
+    }
+
+    @Test
+    void shouldEvictOldestTaskWhenCapacityExceeded() {
+        var historyManager = new ConcurrentHistoryManager(3);
+        for (int id = 1; id <= 200; id++) {
+            historyManager.add(task(id));
+        }
+
+        assertEquals(List.of(198, 199, 200), ids(historyManager.getHistory()));
+    }
+
+    @Test
+    void shouldRecordViewsFromManyThreads() throws Exception {
+        var historyManager = new ConcurrentHistoryManager(10_000);
+        int viewsPerThread = 1000;
+
+        try (ExecutorService executor = Executors.newFixedThreadPool(THREADS)) {
+            List<Future<?>> futures = new ArrayList<>();
+            for (int t = 0; t < THREADS; t++) {
+                int offset = t * viewsPerThread;
+                futures.add(executor.submit(() -> {
+                    for (int i = 0; i < viewsPerThread; i++) {
+                        historyManager.add(task(offset + i));
+                        if (i % 100 == 0) {
+                            historyManager.getHistory(10);
+                        }
+                    }
+                }));
+            }
+            for (var future : futures) {
+                future.get();
+            }
+        }
+
+        List<Task> history = historyManager.getHistory();
+        assertEquals(THREADS * viewsPerThread, history.size());
+        assertEquals(history.size(), new HashSet<>(ids(history)).size());
+        for (int t = 0; t < THREADS; t++) {
+            int offset = t * viewsPerThread;
+            var ownViews = ids(history).stream().filter(id -> id >= offset && id < offset + viewsPerThread).toList();
+            assertEquals(ownViews.stream().sorted().toList(), ownViews, "Порядок просмотров потока нарушен");
+        }
+    }
+
+    private static Task task(int id) {
+        return new Task("Simple task", "it's test task", id, TaskStatus.NEW, null, null);
+    }
+
+    private static List<Integer> ids(List<Task> history) {
+        return history.stream().map(Task::getId).toList();
+    }
+}
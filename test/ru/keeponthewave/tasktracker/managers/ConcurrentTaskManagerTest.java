@@ -0,0 +1,196 @@
+package ru.keeponthewave.tasktracker.managers;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import ru.keeponthewave.tasktracker.exceptions.TimeIntersectionException;
+import ru.keeponthewave.tasktracker.model.EpicTask;
+import ru.keeponthewave.tasktracker.model.SubTask;
+import ru.keeponthewave.tasktracker.model.Task;
+import ru.keeponthewave.tasktracker.model.TaskStatus;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ConcurrentTaskManagerTest extends TaskManagerTest<ConcurrentTaskManager> {
+    private static final int THREADS = 8;
+
+    @Override
+    @BeforeEach
+    public void prepare() {
+        taskManager = new ConcurrentTaskManager(Managers.getDefaultHistory());
+        taskManager.setEpicFieldsVerification(true);
+        epic = new EpicTask("epic", "It's ", 10);
+        taskManager.createEpicTask(epic);
+    }
+
+    @Test
+    void shouldGenerateUniqueIdsWhenCreateTasksConcurrently() throws Exception {
+        int tasksPerThread = 500;
+
+        runConcurrently(() -> {
+            for (int i = 0; i < tasksPerThread; i++) {
+                taskManager.createTask(new Task("Test task", "it's test task", null, TaskStatus.NEW, null, null));
+            }
+            return null;
+        });
+
+        assertEquals(THREADS * tasksPerThread, taskManager.getAllTasks().size());
+    }
+
+    @Test
+    void shouldNotKeepTaskDeletedWhileItIsViewedInHistory() throws Exception {
+        var history = new InMemoryHistoryManager();
+        var managerRef = new AtomicReference<ConcurrentTaskManager>();
+        ExecutorService deleter = Executors.newSingleThreadExecutor();
+        // Просмотр уже прочитал задачу, но ещё не добавил её в историю: в этот момент её удаляют.
+        HistoryManager racingHistory = new HistoryManager() {
+            @Override
+            public synchronized List<Task> getHistory() {
+                return history.getHistory();
+            }
+
+            @Override
+            public synchronized List<Task> getHistory(int limit) {
+                return history.getHistory(limit);
+            }
+
+            @Override
+            public void add(Task task) {
+                try {
+                    deleter.submit(() -> managerRef.get().deleteTaskById(task.getId())).get(5, TimeUnit.SECONDS);
+                } catch (Exception e) {
+                    throw new IllegalStateException(e);
+                }
+                synchronized (this) {
+                    history.add(task);
+                }
+            }
+
+            @Override
+            public synchronized void remove(int id) {
+                history.remove(id);
+            }
+
+            @Override
+            public boolean isConcurrent() {
+                return true;
+            }
+        };
+        var manager = new ConcurrentTaskManager(racingHistory);
+        managerRef.set(manager);
+        try {
+            var task = manager.createTask(new Task("viewed", "", null, TaskStatus.NEW, null, null));
+
+            manager.getTaskById(task.getId());
+
+            assertThrows(NoSuchElementException.class, () -> manager.getTaskById(task.getId()));
+            assertEquals(List.of(), manager.getHistory());
+        } finally {
+            deleter.shutdown();
+        }
+    }
+
+    @Test
+    void shouldReturnEpicSnapshotsDetachedFromLaterChanges() {
+        EpicTask before = taskManager.getEpicTaskById(epic.getId());
+        taskManager.createSubTask(new SubTask("sub", "", null, TaskStatus.DONE, epic.getId(), null, null));
+
+        assertEquals(Set.of(), before.getSubtaskIds());
+        assertEquals(TaskStatus.NEW, before.getStatus());
+        EpicTask after = taskManager.getEpicTaskById(epic.getId());
+        assertEquals(1, after.getSubtaskIds().size());
+        assertEquals(TaskStatus.DONE, after.getStatus());
+        assertEquals(after.getSubtaskIds(), taskManager.getAllEpicTasks().iterator().next().getSubtaskIds());
+    }
+
+    @Test
+    void shouldReadImportSourceWithoutHoldingLocks() throws Exception {
+        ExecutorService executor = Executors.newSingleThreadExecutor();
+        try {
+            Stream<Task> source = Stream.of(new Task("imported", "", null, TaskStatus.NEW, null, null))
+                    .peek(task -> {
+                        Future<Task> created = executor.submit(() -> taskManager.createTask(
+                                new Task("created", "", null, TaskStatus.NEW, Instant.now(), Duration.ofMinutes(5))));
+                        assertDoesNotThrow(() -> created.get(5, TimeUnit.SECONDS));
+                    });
+
+            assertEquals(1, taskManager.importTasks(source).size());
+        } finally {
+            executor.shutdown();
+            assertTrue(executor.awaitTermination(5, TimeUnit.SECONDS));
+        }
+        assertEquals(2, taskManager.getAllTasks().size());
+    }
+
+    @Test
+    void shouldAcceptOnlyOneOfIntersectingTasksCreatedConcurrently() throws Exception {
+        Instant now = Instant.now();
+        AtomicInteger rejected = new AtomicInteger();
+
+        runConcurrently(() -> {
+            for (int i = 0; i < 100; i++) {
+                var task = new Task("Test task", "it's test task", null, TaskStatus.NEW,
+                        now.plus(Duration.ofMinutes(i * 10L)), Duration.ofMinutes(5));
+                try {
+                    taskManager.createTask(task);
+                } catch (TimeIntersectionException e) {
+                    rejected.incrementAndGet();
+                }
+            }
+            return null;
+        });
+
+        assertEquals(100, taskManager.getPrioritizedTasks().size());
+        assertEquals(100 * (THREADS - 1), rejected.get());
+    }
+
+    @Test
+    void shouldKeepEpicFieldsConsistentWhenSubTasksChangedConcurrently() throws Exception {
+        Instant now = Instant.now();
+        AtomicInteger slot = new AtomicInteger();
+
+        runConcurrently(() -> {
+            for (int i = 0; i < 50; i++) {
+                var subTask = new SubTask("sub", "", null, TaskStatus.DONE, epic.getId(),
+                        now.plus(Duration.ofMinutes(slot.getAndIncrement() * 10L)), Duration.ofMinutes(5));
+                taskManager.createSubTask(subTask);
+                taskManager.getSubTaskById(subTask.getId());
+                if (i % 2 == 0) {
+                    taskManager.deleteSubTaskById(subTask.getId());
+                }
+            }
+            return null;
+        });
+
+        assertEquals(THREADS * 25, epic.getSubtaskIds().size());
+        assertEquals(THREADS * 25, taskManager.getPrioritizedTasks().size());
+        assertEquals(TaskStatus.DONE, epic.getStatus());
+        assertEquals(Duration.ofMinutes(5L * THREADS * 25), epic.getDuration());
+    }
+
+    private void runConcurrently(Callable<Void> action) throws Exception {
+        try (ExecutorService executor = Executors.newFixedThreadPool(THREADS)) {
+            List<Future<Void>> futures = new ArrayList<>();
+            for (int i = 0; i < THREADS; i++) {
+                futures.add(executor.submit(action));
+            }
+            for (var future : futures) {
+                future.get();
+            }
+        }
+    }
+}
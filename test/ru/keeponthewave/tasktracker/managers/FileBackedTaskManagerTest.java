@@ -4,16 +4,24 @@ import org.junit.jupiter.api.AfterEach;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import ru.keeponthewave.tasktracker.exceptions.FileManagerRestoreException;
+import ru.keeponthewave.tasktracker.model.EpicTask;
 import ru.keeponthewave.tasktracker.model.SubTask;
 import ru.keeponthewave.tasktracker.model.Task;
 import ru.keeponthewave.tasktracker.model.TaskStatus;
+import ru.keeponthewave.tasktracker.model.TaskType;
 
 import java.io.IOException;
 import java.nio.file.Files;
 import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
 import java.time.Duration;
 import java.time.Instant;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
 import java.util.List;
+import java.util.Set;
+import java.util.concurrent.Executors;
+import java.util.stream.Stream;
 
 import static org.junit.jupiter.api.Assertions.*;
 
@@ -45,7 +53,12 @@ class FileBackedTaskManagerTest extends TaskManagerTest<FileBackedTaskManager> {
     @AfterEach
     public void removeTmpFile() {
         try {
+            taskManager.close();
             Files.delete(file);
+            Files.deleteIfExists(journalFile());
+            for (Path segment : journalSegments()) {
+                Files.delete(segment);
+            }
         } catch (IOException e) {
             throw new RuntimeException("Error managing temporary file: " + e.getMessage());
         }
@@ -122,4 +135,444 @@ class FileBackedTaskManagerTest extends TaskManagerTest<FileBackedTaskManager> {
 
         assertThrows(FileManagerRestoreException.class, () -> FileBackedTaskManager.loadFromFile(file.toFile()));
     }
-}
\ No newline at end of file
+
+    @Test
+    public void shouldRejectMalformedQuotedLineInsteadOfReadingItAsOldFormat() throws IOException {
+        Files.writeString(file, Task.SERIALIZATION_FORMAT + "\n"
+                + "1,TASK,\"unclosed,NEW,descr,,,\n");
+
+        assertThrows(FileManagerRestoreException.class, () -> FileBackedTaskManager.loadFromFile(file.toFile()));
+    }
+
+    @Test
+    public void shouldAppendToJournalWithoutRewritingSnapshot() throws IOException {
+        taskManager = FileBackedTaskManager.loadFromFile(file.toFile(), PersistenceMode.JOURNAL);
+        String snapshotBefore = Files.readString(file);
+
+        var now = Instant.now();
+        Task task = taskManager.createTask(new Task("Task1", "Description task1", null, TaskStatus.NEW, now,
+                Duration.ofMinutes(5)));
+        SubTask subTask = taskManager.createSubTask(new SubTask("Sub Task2", "Description sub task3", null,
+                TaskStatus.DONE, 10, null, null));
+        taskManager.updateTask(new Task("Task1 upd", "Description task1", task.getId(), TaskStatus.DONE,
+                now.plus(Duration.ofHours(1)), Duration.ofMinutes(5)));
+        Task deleted = taskManager.createTask(new Task("Task3", "Description task3", null, TaskStatus.NEW, null, null));
+        taskManager.deleteTaskById(deleted.getId());
+
+        assertEquals(snapshotBefore, Files.readString(file));
+        assertEquals(5, Files.readAllLines(journalFile()).size());
+
+        taskManager.close();
+        taskManager = FileBackedTaskManager.loadFromFile(file.toFile(), PersistenceMode.JOURNAL);
+
+        assertEquals("Task1 upd", taskManager.getTaskById(task.getId()).getName());
+        assertEquals(1, taskManager.getAllTasks().size());
+        assertEquals(1, taskManager.getPrioritizedTasks().size());
+        assertEquals(TaskStatus.DONE, taskManager.getEpicTaskById(10).getStatus());
+        assertNotNull(taskManager.getSubTaskById(subTask.getId()));
+
+        Task next = taskManager.createTask(new Task("Task4", "", null, TaskStatus.NEW, null, null));
+        assertTrue(next.getId() > deleted.getId());
+    }
+
+    @Test
+    public void shouldIgnoreUnfinishedLastJournalRecord() throws IOException {
+        taskManager = FileBackedTaskManager.loadFromFile(file.toFile(), PersistenceMode.JOURNAL);
+        Task task = taskManager.createTask(new Task("Task1", "Description task1", null, TaskStatus.NEW, null, null));
+        taskManager.close();
+
+        Files.writeString(journalFile(), "C,15,TAS", StandardOpenOption.APPEND);
+
+        taskManager = FileBackedTaskManager.loadFromFile(file.toFile(), PersistenceMode.JOURNAL);
+        assertEquals(1, taskManager.getAllTasks().size());
+        assertNotNull(taskManager.getTaskById(task.getId()));
+    }
+
+    @Test
+    public void shouldCutUnfinishedLastJournalRecordBeforeAppending() throws IOException {
+        taskManager = FileBackedTaskManager.loadFromFile(file.toFile(), PersistenceMode.JOURNAL);
+        taskManager.createTask(new Task("a", "", null, TaskStatus.NEW, null, null));
+        taskManager.close();
+        Files.writeString(journalFile(), "C,TASK,9,to", StandardOpenOption.APPEND);
+
+        taskManager = FileBackedTaskManager.loadFromFile(file.toFile(), PersistenceMode.JOURNAL);
+        Task acked = taskManager.createTask(new Task("b", "", null, TaskStatus.NEW, null, null));
+        taskManager.close();
+
+        taskManager = FileBackedTaskManager.loadFromFile(file.toFile(), PersistenceMode.JOURNAL);
+        assertEquals(2, taskManager.getAllTasks().size());
+        assertEquals("b", taskManager.getTaskById(acked.getId()).getName());
+    }
+
+    @Test
+    public void shouldMergeJournalIntoSnapshotWhenRestoreInSnapshotMode() throws IOException {
+        taskManager = FileBackedTaskManager.loadFromFile(file.toFile(), PersistenceMode.JOURNAL);
+        Task task = taskManager.createTask(new Task("Task1", "Description task1", null, TaskStatus.NEW, null, null));
+        taskManager.close();
+
+        taskManager = FileBackedTaskManager.loadFromFile(file.toFile());
+
+        assertFalse(Files.exists(journalFile()));
+        assertTrue(Files.readString(file).contains(task.toString()));
+    }
+
+    @Test
+    public void shouldRestoreNamesAndDescriptionsWithSeparators() throws IOException {
+        var now = Instant.now().truncatedTo(ChronoUnit.MILLIS);
+        Task task = taskManager.createTask(new Task("a,b \"quoted\"", "line1\nline2\\,NEW,", null, TaskStatus.NEW,
+                now, Duration.ofMinutes(15)));
+        SubTask subTask = taskManager.createSubTask(new SubTask("\"", ",", null, TaskStatus.DONE, 10, null, null));
+
+        taskManager = FileBackedTaskManager.loadFromFile(file.toFile());
+
+        Task restored = taskManager.getTaskById(task.getId());
+        assertEquals(task.getName(), restored.getName());
+        assertEquals(task.getDescription(), restored.getDescription());
+        assertEquals(now, restored.getStartTime());
+        assertEquals(Duration.ofMinutes(15), restored.getDuration());
+        SubTask restoredSubTask = taskManager.getSubTaskById(subTask.getId());
+        assertEquals("\"", restoredSubTask.getName());
+        assertEquals(",", restoredSubTask.getDescription());
+        assertEquals(10, restoredSubTask.getEpicTaskId());
+        assertEquals("It's ,epic2", taskManager.getEpicTaskById(10).getDescription());
+        assertEquals(4, Files.readAllLines(file).size());
+    }
+
+    @Test
+    public void shouldRestoreCsvWithWindowsLineEndingsAndMultibyteText() throws IOException {
+        Files.writeString(file, "id,type,name,status,description,startTime,duration,epic\r\n"
+                + "10,EPIC,Эпик,NEW,описание,,,\r\n"
+                + "11,SUBTASK,Подзадача,DONE,\"с, запятой\",,,10");
+
+        taskManager = FileBackedTaskManager.loadFromFile(file.toFile());
+
+        assertEquals("Эпик", taskManager.getEpicTaskById(10).getName());
+        assertEquals("с, запятой", taskManager.getSubTaskById(11).getDescription());
+        assertEquals(TaskStatus.DONE, taskManager.getEpicTaskById(10).getStatus());
+    }
+
+    @Test
+    public void shouldRestoreSubtasksListedBeforeTheirEpicAndAggregateOnce() throws IOException {
+        Files.writeString(file, """
+                id,type,name,status,description,startTime,duration,epic
+                2,SUBTASK,s1,DONE,,0,10,1
+                3,SUBTASK,s2,NEW,,660000,10,1
+                1,EPIC,e,NEW,,,,
+                4,TASK,t,NEW,,1320000,10,
+                """);
+
+        taskManager = FileBackedTaskManager.loadFromFile(file.toFile());
+
+        EpicTask restoredEpic = taskManager.getEpicTaskById(1);
+        assertEquals(TaskStatus.IN_PROGRESS, restoredEpic.getStatus());
+        assertEquals(Instant.EPOCH, restoredEpic.getStartTime());
+        assertEquals(Duration.ofMinutes(20), restoredEpic.getDuration());
+        assertEquals(List.of(2, 3, 4), taskManager.getPrioritizedTasks().stream().map(Task::getId).toList());
+        assertEquals(5, taskManager.createTask(new Task("next", "", null, TaskStatus.NEW, null, null)).getId());
+    }
+
+    @Test
+    public void shouldReportOverlappingTasksInSnapshot() throws IOException {
+        Files.writeString(file, """
+                id,type,name,status,description,startTime,duration,epic
+                1,TASK,a,NEW,,0,30,
+                2,TASK,b,NEW,,3600000,10,
+                3,TASK,c,NEW,,600000,10,
+                """);
+
+        var exception = assertThrows(FileManagerRestoreException.class,
+                () -> FileBackedTaskManager.loadFromFile(file.toFile()));
+        assertTrue(exception.getMessage().contains("line 4"));
+    }
+
+    @Test
+    public void shouldConvertSnapshotToBinaryAndExportBackToCsv() throws IOException {
+        var options = FileStorageOptions.defaults().withStorageFormat(StorageFormat.BINARY);
+        taskManager = FileBackedTaskManager.loadFromFile(file.toFile(), options);
+        var now = Instant.now().truncatedTo(ChronoUnit.MILLIS);
+        Task task = taskManager.createTask(new Task("Задача, с запятой", null, null, TaskStatus.IN_PROGRESS, now,
+                Duration.ofMinutes(30)));
+        SubTask subTask = taskManager.createSubTask(new SubTask("Sub", "", null, TaskStatus.DONE, 10,
+                now.plus(Duration.ofHours(1)), Duration.ofMinutes(5)));
+
+        assertEquals(StorageFormat.BINARY, StorageFormat.detect(file));
+        taskManager = FileBackedTaskManager.loadFromFile(file.toFile(), options);
+
+        Task restored = taskManager.getTaskById(task.getId());
+        assertEquals(task.getName(), restored.getName());
+        assertNull(restored.getDescription());
+        assertEquals(TaskStatus.IN_PROGRESS, restored.getStatus());
+        assertEquals(now, restored.getStartTime());
+        assertEquals(Duration.ofMinutes(30), restored.getDuration());
+        assertEquals(10, taskManager.getSubTaskById(subTask.getId()).getEpicTaskId());
+        assertEquals(2, taskManager.getPrioritizedTasks().size());
+
+        Path csv = Files.createTempFile("export_", ".csv");
+        try {
+            taskManager.exportSnapshot(csv, StorageFormat.CSV);
+            assertEquals(StorageFormat.CSV, StorageFormat.detect(csv));
+            var imported = FileBackedTaskManager.loadFromFile(csv.toFile());
+            assertEquals(1, imported.getAllTasks().size());
+            assertEquals(1, imported.getAllSubTasks().size());
+            assertEquals(TaskStatus.DONE, imported.getEpicTaskById(10).getStatus());
+        } finally {
+            Files.delete(csv);
+        }
+    }
+
+    @Test
+    public void shouldRejectBinarySnapshotWithBrokenChecksum() throws IOException {
+        var options = FileStorageOptions.defaults().withStorageFormat(StorageFormat.BINARY);
+        taskManager = FileBackedTaskManager.loadFromFile(file.toFile(), options);
+        taskManager.createTask(new Task("Task1", "Description task1", null, TaskStatus.NEW, null, null));
+
+        byte[] bytes = Files.readAllBytes(file);
+        bytes[bytes.length - 20] ^= 0x55;
+        Files.write(file, bytes);
+
+        assertThrows(FileManagerRestoreException.class, () -> FileBackedTaskManager.loadFromFile(file.toFile()));
+    }
+
+    @Test
+    public void shouldCompactJournalIntoBackgroundSnapshotByRecordCount() throws IOException {
+        var options = FileStorageOptions.of(PersistenceMode.JOURNAL)
+                .withSnapshotPolicy(new SnapshotPolicy(0, 3, null));
+        taskManager = FileBackedTaskManager.loadFromFile(file.toFile(), options);
+        for (int i = 0; i < 7; i++) {
+            taskManager.createTask(new Task("Task" + i, "", null, TaskStatus.NEW, null, null));
+        }
+        taskManager.close();
+
+        assertTrue(journalSegments().isEmpty());
+        assertTrue(Files.readAllLines(journalFile()).size() <= 4);
+        assertTrue(Files.readAllLines(file).size() >= 1 + 1 + 3);
+
+        taskManager = FileBackedTaskManager.loadFromFile(file.toFile(), options);
+        assertEquals(7, taskManager.getAllTasks().size());
+    }
+
+    @Test
+    public void shouldCompactEpicsFromPreviousSnapshotAndClosedSegments() throws IOException {
+        var options = FileStorageOptions.of(PersistenceMode.JOURNAL)
+                .withSnapshotPolicy(new SnapshotPolicy(0, 2, null));
+        taskManager = FileBackedTaskManager.loadFromFile(file.toFile(), options);
+        EpicTask epicTask = taskManager.createEpicTask(new EpicTask("Epic", "", null));
+        SubTask first = taskManager.createSubTask(new SubTask("first", "", null, TaskStatus.DONE, epicTask.getId(),
+                null, null));
+        taskManager.updateEpicTask(new EpicTask("Renamed", "descr", epicTask.getId()));
+        SubTask second = taskManager.createSubTask(new SubTask("second", "", null, TaskStatus.DONE,
+                epicTask.getId(), null, null));
+        taskManager.deleteSubTaskById(first.getId());
+        taskManager.close();
+
+        assertTrue(journalSegments().isEmpty());
+        assertTrue(Files.size(file) > 0);
+
+        taskManager = FileBackedTaskManager.loadFromFile(file.toFile(), options);
+        EpicTask restored = taskManager.getEpicTaskById(epicTask.getId());
+        assertEquals("Renamed", restored.getName());
+        assertEquals(Set.of(second.getId()), restored.getSubtaskIds());
+        assertEquals(TaskStatus.DONE, restored.getStatus());
+    }
+
+    @Test
+    public void shouldSkipSegmentsAlreadyCoveredBySnapshot() throws IOException {
+        var options = FileStorageOptions.of(PersistenceMode.JOURNAL)
+                .withSnapshotPolicy(new SnapshotPolicy(0, 4, null));
+        taskManager = FileBackedTaskManager.loadFromFile(file.toFile(), options);
+        EpicTask epicTask = taskManager.createEpicTask(new EpicTask("Epic", "", null));
+        SubTask subTask = taskManager.createSubTask(new SubTask("Sub", "", null, TaskStatus.NEW, epicTask.getId(),
+                null, null));
+        SubTask updated = taskManager.updateSubTask(new SubTask("Sub", "updated", subTask.getId(), TaskStatus.DONE,
+                epicTask.getId(), null, null));
+        taskManager.deleteEpicTaskById(epicTask.getId());
+        taskManager.close();
+        assertTrue(journalSegments().isEmpty());
+
+        // Остановка между записью снимка и удалением сегмента
+        Path segment = journalFile().resolveSibling(journalFile().getFileName() + ".1");
+        Files.write(segment, List.of(
+                JournalRecord.updated(updated).encode(),
+                JournalRecord.deleted(TaskType.EPIC, epicTask.getId()).encode()));
+
+        taskManager = FileBackedTaskManager.loadFromFile(file.toFile(), options);
+        assertTrue(taskManager.getAllSubTasks().isEmpty());
+        assertFalse(taskManager.getAllEpicTasks().stream().anyMatch(e -> e.getId().equals(epicTask.getId())));
+        taskManager.createTask(new Task("Task", "", null, TaskStatus.NEW, null, null));
+        taskManager.close();
+
+        taskManager = FileBackedTaskManager.loadFromFile(file.toFile(), options);
+        assertEquals(1, taskManager.getAllTasks().size());
+    }
+
+    @Test
+    public void shouldSnapshotByIntervalOnNextMutation() throws IOException, InterruptedException {
+        var options = FileStorageOptions.of(PersistenceMode.JOURNAL)
+                .withSnapshotPolicy(new SnapshotPolicy(0, 0, Duration.ofMillis(20)));
+        taskManager = FileBackedTaskManager.loadFromFile(file.toFile(), options);
+        Task first = taskManager.createTask(new Task("Task1", "", null, TaskStatus.NEW, null, null));
+        Thread.sleep(100);
+        Task second = taskManager.createTask(new Task("Task2", "", null, TaskStatus.NEW, null, null));
+        taskManager.close();
+
+        String snapshot = Files.readString(file);
+        assertTrue(snapshot.contains(first.toString()));
+        assertTrue(snapshot.contains(second.toString()));
+        assertTrue(Files.readAllLines(journalFile()).isEmpty());
+    }
+
+    @Test
+    public void shouldReplayUncompactedSegmentsAndRemoveThemAfterNextSnapshot() throws IOException {
+        taskManager = FileBackedTaskManager.loadFromFile(file.toFile(), PersistenceMode.JOURNAL);
+        Task task = taskManager.createTask(new Task("Task1", "", null, TaskStatus.NEW, null, null));
+        taskManager.close();
+        Files.move(journalFile(), journalFile().resolveSibling(journalFile().getFileName() + ".1"));
+
+        var options = FileStorageOptions.of(PersistenceMode.JOURNAL)
+                .withSnapshotPolicy(new SnapshotPolicy(0, 1, null));
+        taskManager = FileBackedTaskManager.loadFromFile(file.toFile(), options);
+        assertNotNull(taskManager.getTaskById(task.getId()));
+
+        taskManager.createTask(new Task("Task2", "", null, TaskStatus.NEW, null, null));
+        taskManager.close();
+
+        assertTrue(journalSegments().isEmpty());
+        assertTrue(Files.readString(file).contains(task.toString()));
+    }
+
+    @Test
+    public void shouldPersistConcurrentMutationsWithGroupCommit() throws Exception {
+        var options = FileStorageOptions.of(PersistenceMode.JOURNAL)
+                .withDurabilityPolicy(DurabilityPolicy.group(Duration.ofMillis(2), 16));
+        taskManager = FileBackedTaskManager.loadFromFile(file.toFile(), options);
+        var manager = taskManager;
+
+        try (var executor = Executors.newFixedThreadPool(8)) {
+            for (int i = 0; i < 200; i++) {
+                int n = i;
+                executor.submit(() -> manager.createTask(new Task("Task" + n, "", null, TaskStatus.NEW, null, null)));
+            }
+        }
+        assertEquals(200, Files.readAllLines(journalFile()).size());
+        taskManager.close();
+
+        taskManager = FileBackedTaskManager.loadFromFile(file.toFile(), options);
+        assertEquals(200, taskManager.getAllTasks().size());
+    }
+
+    @Test
+    public void shouldWriteEveryRecordBeforeReturningInSyncMode() throws IOException {
+        var options = FileStorageOptions.of(PersistenceMode.JOURNAL)
+                .withDurabilityPolicy(DurabilityPolicy.sync());
+        taskManager = FileBackedTaskManager.loadFromFile(file.toFile(), options);
+        Task task = taskManager.createTask(new Task("Task1", "", null, TaskStatus.NEW, null, null));
+
+        assertEquals(List.of(JournalRecord.created(task).encode()), Files.readAllLines(journalFile()));
+    }
+
+    @Test
+    public void shouldNotForceSnapshotPerMutationByDefault() {
+        var defaults = FileStorageOptions.defaults();
+        assertFalse(defaults.durabilityPolicy().forcesSnapshots(defaults.persistenceMode()));
+        assertTrue(defaults.durabilityPolicy().forcesSnapshots(PersistenceMode.JOURNAL));
+        assertTrue(DurabilityPolicy.sync().forcesSnapshots(PersistenceMode.SNAPSHOT));
+    }
+
+    @Test
+    public void shouldFlushAsyncJournalInBackgroundAndOnClose() throws IOException {
+        var options = FileStorageOptions.of(PersistenceMode.JOURNAL)
+                .withDurabilityPolicy(DurabilityPolicy.async(Duration.ofHours(1)));
+        taskManager = FileBackedTaskManager.loadFromFile(file.toFile(), options);
+        taskManager.createTask(new Task("Task1", "", null, TaskStatus.NEW, null, null));
+
+        assertTrue(Files.readAllLines(journalFile()).isEmpty());
+        taskManager.close();
+        assertEquals(1, Files.readAllLines(journalFile()).size());
+    }
+
+    @Test
+    public void shouldWriteBatchToJournalAtOnceAndDropUnfinishedBatchOnRestore() throws IOException {
+        var options = FileStorageOptions.of(PersistenceMode.JOURNAL)
+                .withDurabilityPolicy(DurabilityPolicy.sync());
+        taskManager = FileBackedTaskManager.loadFromFile(file.toFile(), options);
+        taskManager.createTask(new Task("Task0", "", null, TaskStatus.NEW, null, null));
+        List<Task> results = taskManager.applyBatch(List.of(
+                BatchOperation.create(new Task("Task1", "", null, TaskStatus.NEW, null, null)),
+                BatchOperation.create(new Task("Task2", "", null, TaskStatus.NEW, null, null))
+        ));
+
+        List<String> lines = Files.readAllLines(journalFile());
+        assertEquals(List.of(JournalRecord.batch(2).encode(),
+                JournalRecord.created(results.get(0)).encode(),
+                JournalRecord.created(results.get(1)).encode()), lines.subList(1, lines.size()));
+        taskManager.close();
+
+        var torn = new Task("torn", "", results.get(0).getId(), TaskStatus.NEW, null, null);
+        Files.writeString(journalFile(), JournalRecord.batch(2).encode() + "\n"
+                + JournalRecord.created(torn).encode() + "\n", StandardOpenOption.APPEND);
+
+        taskManager = FileBackedTaskManager.loadFromFile(file.toFile(), options);
+        assertEquals(3, taskManager.getAllTasks().size());
+        Task acked = taskManager.createTask(new Task("acked", "", null, TaskStatus.NEW, null, null));
+        taskManager.close();
+
+        taskManager = FileBackedTaskManager.loadFromFile(file.toFile(), options);
+        assertEquals(4, taskManager.getAllTasks().size());
+        assertEquals("Task1", taskManager.getTaskById(results.get(0).getId()).getName());
+        assertEquals("acked", taskManager.getTaskById(acked.getId()).getName());
+    }
+
+    @Test
+    public void shouldPersistImportOnceAndRestoreIt() throws IOException {
+        taskManager = FileBackedTaskManager.loadFromFile(file.toFile(), PersistenceMode.SNAPSHOT);
+        var tasks = new ArrayList<Task>();
+        tasks.add(new EpicTask("Epic", "", 1));
+        for (int i = 0; i < 1000; i++) {
+            tasks.add(new SubTask("Sub" + i, "", null, TaskStatus.NEW, 1,
+                    Instant.EPOCH.plus(Duration.ofMinutes(20L * i)), Duration.ofMinutes(10)));
+        }
+        taskManager.importTasks(tasks.stream());
+        taskManager.close();
+
+        taskManager = FileBackedTaskManager.loadFromFile(file.toFile(), PersistenceMode.SNAPSHOT);
+        assertEquals(1000, taskManager.getAllSubTasks().size());
+        assertEquals(1000, taskManager.getPrioritizedTasks().size());
+        var epic = taskManager.getAllEpicTasks().stream().filter(e -> e.getName().equals("Epic")).findFirst().orElseThrow();
+        assertEquals(1000, epic.getSubtaskIds().size());
+    }
+
+    @Test
+    public void shouldCompactImportThatArrivedDuringBackgroundSnapshot() throws IOException, InterruptedException {
+        var options = FileStorageOptions.of(PersistenceMode.JOURNAL).withSnapshotPolicy(SnapshotPolicy.DISABLED);
+        taskManager = FileBackedTaskManager.loadFromFile(file.toFile(), options);
+        var tasks = new ArrayList<Task>();
+        for (int i = 0; i < 5000; i++) {
+            tasks.add(new Task("Task" + i, "", null, TaskStatus.NEW, null, null));
+        }
+        taskManager.importTasks(tasks.stream());
+        taskManager.importTasks(Stream.of(new Task("Late", "", null, TaskStatus.NEW, null, null)));
+        // Сегменты удаляются чуть раньше, чем снимается флаг свёртки, поэтому запись может повториться.
+        for (int i = 0; i < 100 && Files.readString(journalFile()).contains("Late"); i++) {
+            while (!journalSegments().isEmpty()) {
+                Thread.sleep(10);
+            }
+            taskManager.createTask(new Task("Next" + i, "", null, TaskStatus.NEW, null, null));
+            Thread.sleep(10);
+        }
+        taskManager.close();
+
+        assertFalse(Files.readString(journalFile()).contains("Late"));
+        assertTrue(Files.readString(file).contains("Late"));
+    }
+
+    private List<Path> journalSegments() throws IOException {
+        String prefix = journalFile().getFileName() + ".";
+        try (var paths = Files.list(file.getParent())) {
+            return paths.filter(path -> path.getFileName().toString().startsWith(prefix)).toList();
+        }
+    }
+
+    private Path journalFile() {
+        return file.resolveSibling(file.getFileName() + ".journal");
+    }
+}
@@ -100,4 +100,34 @@ class InMemoryHistoryManagerTest {
         assertEquals(historyAfter.getFirst().getId(), tasksList.getFirst().getId());
         assertEquals(historyAfter.getLast().getId(), tasksList.getLast().getId());
     }
-}
\ No newline at end of file
+
+    @Test
+    void shouldEvictOldestTaskWhenCapacityExceeded() {
+        historyManager = new InMemoryHistoryManager(2);
+        for (int id = 1; id <= 3; id++) {
+            historyManager.add(new Task("Simple task", "it's test task", id, TaskStatus.NEW, null, null));
+        }
+        historyManager.add(new Task("Simple task", "it's test task", 2, TaskStatus.NEW, null, null));
+
+        List<Task> history = historyManager.getHistory();
+        assertEquals(2, history.size());
+        assertEquals(3, history.getFirst().getId());
+        assertEquals(2, history.getLast().getId());
+    }
+
+    @Test
+    void shouldReturnLastTasksInViewOrder() {
+        for (int id = 1; id <= 5; id++) {
+            historyManager.add(new Task("Simple task", "it's test task", id, TaskStatus.NEW, null, null));
+        }
+
+        assertEquals(List.of(4, 5), historyManager.getHistory(2).stream().map(Task::getId).toList());
+        assertEquals(5, historyManager.getHistory(10).size());
+        assertTrue(historyManager.getHistory(0).isEmpty());
+    }
+
+    @Test
+    void shouldRejectNonPositiveCapacity() {
+        assertThrows(IllegalArgumentException.class, () -> new InMemoryHistoryManager(0));
+    }
+}
@@ -8,6 +8,7 @@ class InMemoryTaskManagerTest extends TaskManagerTest<InMemoryTaskManager> {
     @BeforeEach
     public void prepare() {
         taskManager = (InMemoryTaskManager) Managers.getDefault();
+        taskManager.setEpicFieldsVerification(true);
         epic = new EpicTask("epic", "It's ", 10);
         taskManager.createEpicTask(epic);
     }
@@ -0,0 +1,99 @@
+package ru.keeponthewave.tasktracker.managers;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import ru.keeponthewave.tasktracker.model.Task;
+import ru.keeponthewave.tasktracker.model.TaskStatus;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class PartitionedHistoryManagerTest {
+    private final AtomicLong clock = new AtomicLong();
+
+    @AfterEach
+    public void clearClient() {
+        ClientContext.clear();
+    }
+
+    @Test
+    void shouldKeepSeparateHistoryForEachClient() {
+        var historyManager = new PartitionedHistoryManager(10, 100, Duration.ofMinutes(1), clock::get);
+
+        viewAs(historyManager, "alice", 1);
+        viewAs(historyManager, "bob", 2);
+        viewAs(historyManager, "alice", 3);
+
+        assertEquals(List.of(1, 3), historyOf(historyManager, "alice"));
+        assertEquals(List.of(2), historyOf(historyManager, "bob"));
+        assertEquals(List.of(), historyOf(historyManager, ClientContext.ANONYMOUS));
+
+        historyManager.remove(1);
+        assertEquals(List.of(3), historyOf(historyManager, "alice"));
+    }
+
+    @Test
+    void shouldForgetIdleClient() {
+        var historyManager = new PartitionedHistoryManager(10, 100, Duration.ofMinutes(1), clock::get);
+        viewAs(historyManager, "alice", 1);
+
+        clock.addAndGet(Duration.ofMinutes(2).toNanos());
+
+        assertEquals(List.of(), historyOf(historyManager, "alice"));
+        assertEquals(0, historyManager.partitionCount());
+    }
+
+    @Test
+    void shouldEvictLeastRecentlyActiveClientWhenTotalCapacityExceeded() {
+        var historyManager = new PartitionedHistoryManager(10, 20, Duration.ofHours(1), clock::get);
+        viewAs(historyManager, "alice", 1);
+        clock.incrementAndGet();
+        viewAs(historyManager, "bob", 2);
+        clock.incrementAndGet();
+        viewAs(historyManager, "alice", 3);
+        clock.incrementAndGet();
+        viewAs(historyManager, "carol", 4);
+
+        assertEquals(2, historyManager.partitionCount());
+        assertEquals(List.of(), historyOf(historyManager, "bob"));
+        assertEquals(List.of(1, 3), historyOf(historyManager, "alice"));
+        assertEquals(List.of(4), historyOf(historyManager, "carol"));
+    }
+
+    @Test
+    void shouldIndexOnlyTasksStillPresentInSomeHistory() {
+        var historyManager = new PartitionedHistoryManager(2, 100, Duration.ofMinutes(1), clock::get);
+        viewAs(historyManager, "alice", 1);
+        viewAs(historyManager, "alice", 2);
+        viewAs(historyManager, "alice", 3);
+        viewAs(historyManager, "bob", 3);
+        assertEquals(2, historyManager.indexedTaskCount());
+
+        historyManager.removeAll(List.of(1, 3));
+        assertEquals(List.of(2), historyOf(historyManager, "alice"));
+        assertEquals(List.of(), historyOf(historyManager, "bob"));
+        assertEquals(1, historyManager.indexedTaskCount());
+
+        clock.addAndGet(Duration.ofMinutes(2).toNanos());
+        assertEquals(List.of(), historyOf(historyManager, "alice"));
+        assertEquals(0, historyManager.indexedTaskCount());
+    }
+
+    @Test
+    void shouldRejectTotalCapacityLessThanPartitionCapacity() {
+        assertThrows(IllegalArgumentException.class, () -> new PartitionedHistoryManager(10, 5, null));
+    }
+
+    private static void viewAs(HistoryManager historyManager, String clientId, int taskId) {
+        ClientContext.set(clientId);
+        historyManager.add(new Task("Simple task", "it's test task", taskId, TaskStatus.NEW, null, null));
+    }
+
+    private static List<Integer> historyOf(HistoryManager historyManager, String clientId) {
+        ClientContext.set(clientId);
+        return historyManager.getHistory().stream().map(Task::getId).toList();
+    }
+}
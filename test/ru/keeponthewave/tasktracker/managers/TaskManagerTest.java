@@ -2,17 +2,22 @@ package ru.keeponthewave.tasktracker.managers;
 
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
+import ru.keeponthewave.tasktracker.exceptions.BatchRejectedException;
 import ru.keeponthewave.tasktracker.exceptions.TimeIntersectionException;
 import ru.keeponthewave.tasktracker.model.EpicTask;
 import ru.keeponthewave.tasktracker.model.SubTask;
 import ru.keeponthewave.tasktracker.model.Task;
 import ru.keeponthewave.tasktracker.model.TaskStatus;
+import ru.keeponthewave.tasktracker.model.TaskType;
 
+import java.io.BufferedReader;
+import java.io.StringReader;
 import java.time.Duration;
 import java.time.Instant;
 import java.util.List;
 import java.util.NoSuchElementException;
 import java.util.Objects;
+import java.util.Set;
 
 import static org.junit.jupiter.api.Assertions.*;
 
@@ -142,6 +147,21 @@ abstract class TaskManagerTest<T extends TaskManager> {
         assertEquals(epic.getSubtaskIds().size(), 0);
     }
 
+    @Test
+    void shouldKeepSubtaskOrderAfterRemovingOne() {
+        SubTask first = taskManager.createSubTask(
+                new SubTask("first", "", null, TaskStatus.NEW, epic.getId(), null, null));
+        SubTask second = taskManager.createSubTask(
+                new SubTask("second", "", null, TaskStatus.NEW, epic.getId(), null, null));
+        SubTask third = taskManager.createSubTask(
+                new SubTask("third", "", null, TaskStatus.NEW, epic.getId(), null, null));
+
+        taskManager.deleteSubTaskById(second.getId());
+
+        assertEquals(List.of(first.getId(), third.getId()),
+                List.copyOf(taskManager.getEpicTaskById(epic.getId()).getSubtaskIds()));
+    }
+
     @Test
     void deleteAllSubTasks() {
         SubTask task1 = new SubTask("Test task", "it's test task", 0, TaskStatus.NEW, epic.getId(), null, null);
@@ -268,6 +288,183 @@ abstract class TaskManagerTest<T extends TaskManager> {
         assertEquals(history.get(2), epic);
     }
 
+    @Test
+    void shouldRemoveDeletedTasksFromHistory() {
+        SubTask subtask = new SubTask("Test task", "it's test task", 0, TaskStatus.NEW, epic.getId(), null, null);
+        Task task1 = new Task("Test task", "it's test task", 1, TaskStatus.NEW, null, null);
+        Task task2 = new Task("Test task", "it's test task", 2, TaskStatus.NEW, null, null);
+        taskManager.createTask(task1);
+        taskManager.createTask(task2);
+        taskManager.createSubTask(subtask);
+
+        taskManager.getTaskById(task1.getId());
+        taskManager.getTaskById(task2.getId());
+        taskManager.getSubTaskById(subtask.getId());
+
+        taskManager.deleteTaskById(task1.getId());
+        assertFalse(taskManager.getHistory().contains(task1));
+        assertEquals(List.of(task2, subtask), taskManager.getHistory(2));
+
+        taskManager.deleteEpicTaskById(epic.getId());
+        assertEquals(List.of(task2), taskManager.getHistory());
+
+        taskManager.deleteAllTasks();
+        assertTrue(taskManager.getHistory().isEmpty());
+    }
+
+    @Test
+    void shouldPageTasksInIdOrder() {
+        for (int i = 0; i < 5; i++) {
+            taskManager.createTask(new Task("Test task", "it's test task", null, TaskStatus.NEW, null, null));
+        }
+        var ids = taskManager.getAllTasks().stream().map(Task::getId).sorted().toList();
+
+        Page<Task> first = taskManager.getTasksPage(null, 3);
+        assertEquals(ids.subList(0, 3), first.items().stream().map(Task::getId).toList());
+        assertEquals(ids.get(2), first.nextCursor());
+
+        taskManager.deleteTaskById(ids.get(3));
+        Page<Task> second = taskManager.getTasksPage(first.nextCursor(), 3);
+        assertEquals(List.of(ids.get(4)), second.items().stream().map(Task::getId).toList());
+        assertNull(second.nextCursor());
+
+        assertEquals(List.of(epic), taskManager.getEpicTasksPage(null, 10).items());
+        assertTrue(taskManager.getSubTasksPage(null, 10).items().isEmpty());
+    }
+
+    @Test
+    void shouldAdvanceVersionsOnMutations() {
+        long initial = taskManager.getVersion();
+        long epicVersion = taskManager.getVersion(TaskType.EPIC);
+
+        Task task = taskManager.createTask(new Task("Test task", "it's test task", null, TaskStatus.NEW, null, null));
+        assertTrue(taskManager.getVersion() > initial);
+        assertEquals(taskManager.getVersion(), taskManager.getVersion(TaskType.TASK));
+        assertEquals(epicVersion, taskManager.getVersion(TaskType.EPIC));
+
+        taskManager.getTaskById(task.getId());
+        long afterRead = taskManager.getVersion();
+        assertEquals(afterRead, taskManager.getVersion());
+
+        taskManager.createSubTask(new SubTask("Test task", "it's test task", null, TaskStatus.NEW, epic.getId(),
+                null, null));
+        assertTrue(taskManager.getVersion(TaskType.EPIC) > afterRead);
+        assertTrue(taskManager.getVersion(TaskType.SUBTASK) > afterRead);
+    }
+
+    @Test
+    void shouldApplyBatchWithSubtasksOfEpicCreatedInSameBatch() {
+        Instant now = Instant.now();
+        Task moved = taskManager.createTask(new Task("Test task", "it's test task", null, TaskStatus.NEW, now,
+                Duration.ofMinutes(10)));
+
+        List<Task> results = taskManager.applyBatch(List.of(
+                BatchOperation.update(new Task("Test task", "moved", moved.getId(), TaskStatus.NEW,
+                        now.plus(Duration.ofMinutes(60)), Duration.ofMinutes(10))),
+                BatchOperation.create(new Task("Test task", "takes freed time", null, TaskStatus.NEW, now,
+                        Duration.ofMinutes(10))),
+                BatchOperation.create(new EpicTask("Batch epic", "it's test epic", null)),
+                BatchOperation.createInBatchEpic(new SubTask("Test task", "it's test task", null, TaskStatus.DONE,
+                        null, now.plus(Duration.ofMinutes(20)), Duration.ofMinutes(10)), 2)
+        ));
+
+        assertEquals(4, results.size());
+        var createdEpic = (EpicTask) results.get(2);
+        var subTask = (SubTask) results.get(3);
+        assertEquals(createdEpic.getId(), subTask.getEpicTaskId());
+        assertEquals(Set.of(subTask.getId()), createdEpic.getSubtaskIds());
+        assertEquals(TaskStatus.DONE, createdEpic.getStatus());
+        assertEquals(List.of(results.get(1), subTask, results.get(0)), taskManager.getPrioritizedTasks());
+    }
+
+    @Test
+    void shouldRejectWholeBatchWhenItsTasksOverlap() {
+        Instant now = Instant.now();
+        long version = taskManager.getVersion();
+
+        var rejected = assertThrows(BatchRejectedException.class, () -> taskManager.applyBatch(List.of(
+                BatchOperation.create(new Task("Test task", "it's test task", null, TaskStatus.NEW, now,
+                        Duration.ofMinutes(10))),
+                BatchOperation.create(new Task("Test task", "it's test task", null, TaskStatus.NEW,
+                        now.plus(Duration.ofMinutes(5)), Duration.ofMinutes(10)))
+        )));
+        assertEquals(1, rejected.getIndex());
+        assertInstanceOf(TimeIntersectionException.class, rejected.getCause());
+
+        rejected = assertThrows(BatchRejectedException.class, () -> taskManager.applyBatch(List.of(
+                BatchOperation.create(new Task("Test task", "it's test task", null, TaskStatus.NEW, null, null)),
+                BatchOperation.delete(TaskType.EPIC, epic.getId()),
+                BatchOperation.create(new SubTask("Test task", "it's test task", null, TaskStatus.NEW,
+                        epic.getId(), null, null))
+        )));
+        assertEquals(2, rejected.getIndex());
+        assertInstanceOf(NoSuchElementException.class, rejected.getCause());
+
+        assertTrue(taskManager.getAllTasks().isEmpty());
+        assertEquals(version, taskManager.getVersion());
+    }
+
+    @Test
+    void shouldImportTasksWithNewIdsAndLinkSubtasksToImportedEpics() {
+        Instant now = Instant.now();
+        String csv = Task.SERIALIZATION_FORMAT + "\n"
+                + "7,SUBTASK,sub1,DONE,descr," + now.toEpochMilli() + ",10,500\n"
+                + "500,EPIC,imported epic,NEW,descr,,,\n"
+                + "8,SUBTASK,sub2,DONE,descr,,," + epic.getId() + "\n"
+                + "9,TASK,task,NEW,descr," + now.plus(Duration.ofMinutes(30)).toEpochMilli() + ",10,\n";
+
+        List<Task> imported = taskManager.importTasks(
+                TaskImportFormat.CSV.read(new BufferedReader(new StringReader(csv))));
+
+        assertEquals(4, imported.size());
+        var importedEpic = (EpicTask) imported.get(1);
+        var sub1 = (SubTask) imported.get(0);
+        assertEquals(importedEpic.getId(), sub1.getEpicTaskId());
+        assertEquals(epic.getId(), ((SubTask) imported.get(2)).getEpicTaskId());
+        assertEquals(TaskStatus.DONE, importedEpic.getStatus());
+        assertEquals(now.toEpochMilli(), importedEpic.getStartTime().toEpochMilli());
+        assertEquals(List.of(sub1, imported.get(3)), taskManager.getPrioritizedTasks());
+        assertEquals(4, imported.stream().map(Task::getId).distinct().count());
+
+        Task next = taskManager.createTask(new Task("Test task", "it's test task", null, TaskStatus.NEW, null, null));
+        assertTrue(imported.stream().noneMatch(task -> task.getId().equals(next.getId())));
+    }
+
+    @Test
+    void shouldRejectWholeImportWhenTasksOverlap() {
+        Instant now = Instant.now();
+        taskManager.createTask(new Task("Test task", "it's test task", null, TaskStatus.NEW, now, Duration.ofMinutes(10)));
+        String jsonLines = "{\"type\":\"TASK\",\"name\":\"task1\",\"startTime\":\""
+                + now.plus(Duration.ofMinutes(20)) + "\",\"duration\":10}\n"
+                + "{\"type\":\"TASK\",\"name\":\"task2\",\"startTime\":\""
+                + now.plus(Duration.ofMinutes(5)) + "\",\"duration\":5}\n";
+
+        var e = assertThrows(TimeIntersectionException.class, () -> taskManager.importTasks(
+                TaskImportFormat.JSON_LINES.read(new BufferedReader(new StringReader(jsonLines)))));
+        assertTrue(e.getMessage().contains("#2"));
+        assertEquals(1, taskManager.getAllTasks().size());
+    }
+
+    @Test
+    void shouldReturnPrioritizedTasksInTimeRange() {
+        Instant start = Instant.parse("2024-01-01T00:00:00Z");
+        SubTask first = taskManager.createSubTask(new SubTask("Test task", "it's test task", null, TaskStatus.NEW,
+                epic.getId(), start, Duration.ofMinutes(30)));
+        Task second = taskManager.createTask(new Task("Test task", "it's test task", null, TaskStatus.NEW,
+                start.plus(Duration.ofHours(1)), Duration.ofMinutes(30)));
+        Task third = taskManager.createTask(new Task("Test task", "it's test task", null, TaskStatus.NEW,
+                start.plus(Duration.ofHours(2)), Duration.ofMinutes(30)));
+
+        assertEquals(List.of(first, second), taskManager.getPrioritizedTasks(start.plus(Duration.ofMinutes(10)),
+                start.plus(Duration.ofHours(2)), 10));
+        assertEquals(List.of(second, third), taskManager.getPrioritizedTasks(start.plus(Duration.ofMinutes(30)),
+                null, 10));
+        assertEquals(List.of(first), taskManager.getPrioritizedTasks(null, null, 1));
+        assertEquals(List.of(second), taskManager.getNextPrioritizedTasks(start.plus(Duration.ofMinutes(10)), 1));
+        assertTrue(taskManager.getNextPrioritizedTasks(start.plus(Duration.ofHours(3)), 5).isEmpty());
+        assertThrows(IllegalArgumentException.class, () -> taskManager.getPrioritizedTasks(null, null, 0));
+    }
+
     @Test
     void shouldCorrectChangeEpicStatus() {
         assertEquals(epic.getStatus(), TaskStatus.NEW);
@@ -307,6 +504,60 @@ abstract class TaskManagerTest<T extends TaskManager> {
         assertThrows(TimeIntersectionException.class, () -> taskManager.createTask(conflictTask4));
     }
 
+    @Test
+    void shouldNotThrowWhenTaskFitsBetweenScheduledTasks() {
+        Instant now = Instant.now();
+
+        Task before = new Task("Test task", "it's test task", 0, TaskStatus.NEW, now, Duration.ofMinutes(10));
+        Task after = new Task("Test task", "it's test task", 1, TaskStatus.NEW, now.plus(Duration.ofMinutes(30)), Duration.ofMinutes(10));
+        Task longTask = new Task("Test task", "it's test task", 2, TaskStatus.NEW, now.minus(Duration.ofMinutes(60)), Duration.ofMinutes(50));
+        taskManager.createTask(before);
+        taskManager.createTask(after);
+        taskManager.createTask(longTask);
+
+        Task between = new Task("Test task", "it's test task", 3, TaskStatus.NEW, now.plus(Duration.ofMinutes(15)), Duration.ofMinutes(10));
+        Task touching = new Task("Test task", "it's test task", 4, TaskStatus.NEW, now.plus(Duration.ofMinutes(25)), Duration.ofMinutes(5));
+        Task coveringAll = new Task("Test task", "it's test task", 5, TaskStatus.NEW, now.minus(Duration.ofMinutes(90)), Duration.ofMinutes(200));
+
+        assertDoesNotThrow(() -> taskManager.createTask(between));
+        assertThrows(TimeIntersectionException.class, () -> taskManager.createTask(touching));
+        assertThrows(TimeIntersectionException.class, () -> taskManager.createTask(coveringAll));
+        assertEquals(4, taskManager.getPrioritizedTasks().size());
+    }
+
+    @Test
+    void shouldNotThrowWhenUpdateTaskInsideItsOwnTime() {
+        Instant now = Instant.now();
+
+        Task task = new Task("Test task", "it's test task", 0, TaskStatus.NEW, now, Duration.ofMinutes(10));
+        taskManager.createTask(task);
+
+        Task shifted = new Task("Test task", "it's test task", task.getId(), TaskStatus.IN_PROGRESS,
+                now.plus(Duration.ofMinutes(5)), Duration.ofMinutes(10));
+
+        assertDoesNotThrow(() -> taskManager.updateTask(shifted));
+        assertEquals(1, taskManager.getPrioritizedTasks().size());
+        assertEquals(shifted.getStartTime(), taskManager.getPrioritizedTasks().getFirst().getStartTime());
+    }
+
+    @Test
+    void shouldRemoveFromPrioritizedTasksWhenTaskTimeChangedOutsideManager() {
+        Instant now = Instant.now();
+
+        Task task = new Task("Test task", "it's test task", 0, TaskStatus.NEW, now, Duration.ofMinutes(10));
+        SubTask subTask = new SubTask("Test task", "it's test task", 1, TaskStatus.NEW, epic.getId(),
+                now.plus(Duration.ofHours(1)), Duration.ofMinutes(10));
+        taskManager.createTask(task);
+        taskManager.createSubTask(subTask);
+
+        task.setStartTime(now.plus(Duration.ofDays(1)));
+        taskManager.deleteTaskById(task.getId());
+        subTask.setStartTime(null);
+        taskManager.deleteAllSubTasks();
+
+        assertEquals(0, taskManager.getPrioritizedTasks().size());
+    }
+
     @Test
     void shouldCorrectCalcEpicTime() {
         var now = Instant.now();
@@ -327,6 +578,41 @@ abstract class TaskManagerTest<T extends TaskManager> {
         assertEquals(epic.getDuration(), sub2.getDuration().plus(sub1.getDuration()));
     }
 
+    @Test
+    void shouldRecalculateEpicFieldsWhenSubTaskUpdatedOrDeleted() {
+        var now = Instant.now();
+
+        var first = new SubTask("sub1", "", null, TaskStatus.DONE, epic.getId(), now, Duration.ofMinutes(5));
+        var last = new SubTask("sub2", "", null, TaskStatus.DONE, epic.getId(), now.plus(Duration.ofHours(1)), Duration.ofMinutes(10));
+        var unscheduled = new SubTask("sub3", "", null, TaskStatus.NEW, epic.getId(), null, null);
+        taskManager.createSubTask(first);
+        taskManager.createSubTask(last);
+        taskManager.createSubTask(unscheduled);
+
+        assertEquals(TaskStatus.IN_PROGRESS, epic.getStatus());
+        assertEquals(first.getStartTime(), epic.getStartTime());
+        assertEquals(last.getEndTime(), epic.getEndTime());
+        assertEquals(Duration.ofMinutes(15), epic.getDuration());
+
+        taskManager.deleteSubTaskById(unscheduled.getId());
+        assertEquals(TaskStatus.DONE, epic.getStatus());
+
+        var lastMoved = new SubTask("sub2", "", last.getId(), TaskStatus.NEW, epic.getId(),
+                now.minus(Duration.ofHours(1)), Duration.ofMinutes(20));
+        taskManager.updateSubTask(lastMoved);
+        assertEquals(TaskStatus.IN_PROGRESS, epic.getStatus());
+        assertEquals(lastMoved.getStartTime(), epic.getStartTime());
+        assertEquals(first.getEndTime(), epic.getEndTime());
+        assertEquals(Duration.ofMinutes(25), epic.getDuration());
+
+        taskManager.deleteSubTaskById(first.getId());
+        taskManager.deleteSubTaskById(lastMoved.getId());
+        assertEquals(TaskStatus.NEW, epic.getStatus());
+        assertNull(epic.getStartTime());
+        assertNull(epic.getEndTime());
+        assertEquals(Duration.ZERO, epic.getDuration());
+    }
+
     @Test
     void shouldFillPrioritizedTasksWhenAddTaskAndSubTask() {
         var now = Instant.now();